@@ -16,6 +16,18 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // Схемы Room по версиям — для MigrationTestHelper; текущая выгружается при каждой сборке
+        javaCompileOptions {
+            annotationProcessorOptions {
+                arguments += mapOf("room.schemaLocation" to "$projectDir/schemas")
+            }
+        }
+    }
+
+    sourceSets {
+        // Robolectric читает ассеты собранного варианта, а не test — схемы кладём в debug
+        getByName("debug").assets.srcDir("$projectDir/schemas")
     }
 
     buildTypes {
@@ -31,6 +43,28 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        unitTests {
+            // Robolectric-бенчмарки надувают item_note.xml
+            isIncludeAndroidResources = true
+            all {
+                // Большие базы и пороги времени — только при явном запуске бенчмарков,
+                // например -Pnotes.benchmark.sizes=1000,10000,100000; обычная сборка
+                // гоняет их на маленькой базе без порогов
+                val benchmarkSizes = project.findProperty("notes.benchmark.sizes")
+                benchmarkSizes?.let { value -> it.systemProperty("notes.benchmark.sizes", value) }
+                // Нагрузочные сценарии (WorkloadScenarioBenchmark) — только если профиль задан явно
+                listOf("profile", "seed", "sort", "script").forEach { key ->
+                    project.findProperty("notes.workload.$key")?.let { value ->
+                        it.systemProperty("notes.workload.$key", value)
+                    }
+                }
+                if (benchmarkSizes != null || project.hasProperty("notes.workload.profile")) {
+                    it.maxHeapSize = "2g"
+                }
+            }
+        }
+    }
 }
 
 dependencies {
@@ -39,9 +73,14 @@ dependencies {
     implementation(libs.activity)
     implementation(libs.constraintlayout)
     testImplementation(libs.junit)
+    testImplementation("org.robolectric:robolectric:4.14.1")
+    testImplementation("androidx.test:core:1.6.1")
     implementation("com.google.android.material:material:1.11.0")
     implementation ("androidx.room:room-runtime:2.6.1")
     annotationProcessor ("androidx.room:room-compiler:2.6.1")
+    testImplementation("androidx.room:room-testing:2.6.1")
+    implementation("androidx.paging:paging-runtime:3.3.6")
+    implementation("androidx.paging:paging-guava:3.3.6")
 
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
@@ -2,28 +2,55 @@ package com.example.notes;
 
 import android.app.AlertDialog;
 import android.content.Intent;
-import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.net.Uri;
 import android.graphics.Typeface;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.widget.EditText;
 import android.widget.LinearLayout;
+import android.widget.Toast;
 
+import androidx.activity.result.ActivityResult;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
+
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.view.ActionMode;
+import androidx.appcompat.widget.SearchView;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.PagingData;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.notes.adapter.NoteAdapter;
-import com.example.notes.data.db.AppDatabase;
+import com.example.notes.data.NoteRepository;
+import com.example.notes.util.AppSettings;
+import com.example.notes.util.FontCache;
+import com.example.notes.util.StartupTrace;
 import com.example.notes.data.db.Note;
-import com.example.notes.data.db.NoteDao;
+import com.example.notes.data.db.NoteSearchResult;
+import com.example.notes.data.db.NoteSummary;
+import com.example.notes.data.paging.NoteSort;
+import com.example.notes.metrics.FrameStats;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import com.google.android.material.snackbar.Snackbar;
 
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+
+import kotlin.Unit;
+import kotlin.jvm.functions.Function0;
 
 /**
  * Главная активность приложения — экран со списком всех заметок.
@@ -32,9 +59,6 @@ import java.util.List;
  */
 public class MainActivity extends AppCompatActivity {
 
-    // Список заметок (хранится в памяти, синхронизируется с БД)
-    private final List<Note> notes = new ArrayList<>();
-
     // RecyclerView и его адаптер
     private RecyclerView recyclerView;
     private NoteAdapter adapter;
@@ -42,102 +66,224 @@ public class MainActivity extends AppCompatActivity {
     // Кнопка добавления новой заметки (плюсик)
     private FloatingActionButton fabAdd;
 
-    // Launcher для запуска NoteDetailActivity и получения результата (изменено/удалено)
-    private final ActivityResultLauncher<Intent> noteDetailLauncher =
+    // Доступ к базе: пул чтения и единый поток записи
+    private NoteRepository repository;
+
+    // Пейджер и загруженные страницы — переживают пересоздание активности
+    private NotesViewModel viewModel;
+
+    // Тема, с которой создана активность; смена темы в настройках пересоздаёт её
+    private String appliedTheme;
+
+    // Пауза в наборе, после которой запускается поиск: по запросу на каждую букву не бежим
+    private static final long SEARCH_DEBOUNCE_MS = 120;
+
+    // Номер последнего поискового запроса. Читается и потоком поиска:
+    // устаревший запрос бросается на полпути, ответ на него не доставляется
+    private volatile int searchGeneration;
+
+    // Отложенный поиск по последнему набранному тексту
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final Runnable pendingSearch = () -> searchNotes(pendingQuery);
+    private String pendingQuery;
+
+    // Режим множественного выбора (null — выключен)
+    private ActionMode selectionActionMode;
+
+    // Выбор файла для импорта и экспорта заметок (NDJSON)
+    private final ActivityResultLauncher<String[]> importLauncher =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), this::importNotes);
+    private final ActivityResultLauncher<String> exportLauncher =
             registerForActivityResult(
-                    new ActivityResultContracts.StartActivityForResult(),
-                    result -> {
-                        // Проверяем, успешно ли завершена детальная активность
-                        if (result.getResultCode() == RESULT_OK && result.getData() != null) {
-                            boolean changed = result.getData().getBooleanExtra("noteChanged", false);
-                            boolean deleted = result.getData().getBooleanExtra("noteDeleted", false);
-                            // Если заметка изменена или удалена — перезагружаем список
-                            if (changed || deleted) {
-                                loadNotesFromDb();
-                            }
-                        }
-                    }
-            );
+                    new ActivityResultContracts.CreateDocument("application/x-ndjson"),
+                    this::exportNotes);
+    private final ActivityResultLauncher<String> exportChangesLauncher =
+            registerForActivityResult(
+                    new ActivityResultContracts.CreateDocument("application/x-ndjson"),
+                    this::exportChanges);
+
+    // Экран заметки сообщает об удалении — здесь показываем «Отменить»
+    private final ActivityResultLauncher<Intent> detailLauncher =
+            registerForActivityResult(new ActivityResultContracts.StartActivityForResult(),
+                    this::onNoteDetailResult);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        Trace.beginSection("MainActivity.onCreate");
 
         // === Применяем выбранную пользователем тему ===
-        SharedPreferences prefs = getSharedPreferences("app_settings", MODE_PRIVATE);
-        String theme = prefs.getString("theme", "Светлая");
-        if ("Тёмная".equals(theme)) {
-            setTheme(R.style.Theme_Dark);
-        } else if ("Синяя".equals(theme)) {
-            setTheme(R.style.Theme_Blue);
-        } else {
-            setTheme(R.style.Theme_Light);
-        }
+        AppSettings settings = AppSettings.getInstance(this);
+        appliedTheme = settings.getTheme();
+        setTheme(AppSettings.themeStyle(appliedTheme));
 
-        // === Загружаем выбранный шрифт из assets ===
-        Typeface typeface;
-        try {
-            String fontFile = prefs.getString("font", "roboto_variablefont.ttf");
-            typeface = Typeface.createFromAsset(getAssets(), "fonts/" + fontFile);
-        } catch (Exception e) {
-            // Если шрифт не найден или ошибка — используем стандартный
-            typeface = Typeface.DEFAULT;
-        }
+        // === Берём выбранный шрифт из кэша (разобран в фоне при старте приложения) ===
+        Typeface typeface = FontCache.get(this, settings.getFont());
+
+        // Список и его сортировка (та же, с которой NotesApplication заранее прочитала первую страницу)
+        viewModel = new ViewModelProvider(this).get(NotesViewModel.class);
 
         // Устанавливаем layout экрана
         setContentView(R.layout.activity_main);
 
+        // Длительность кадров списка и пропущенные кадры — в метрики
+        FrameStats.attach(this, "main");
+
         // === Настройка Toolbar ===
         setSupportActionBar(findViewById(R.id.toolbar));
 
+        repository = NoteRepository.getInstance(this);
+
         // === Инициализация RecyclerView ===
         recyclerView = findViewById(R.id.recyclerView);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
 
         // === Создание и привязка адаптера заметок ===
-        // Передаём список, обработчики клика и долгого нажатия
-        adapter = new NoteAdapter(notes, this::openNoteDetail, this::showDeleteNoteDialog);
+        // Передаём обработчики клика и долгого нажатия, данные приходят страницами
+        // (долгое нажатие включает множественный выбор)
+        adapter = new NoteAdapter(this::openNoteDetail, note -> startSelectionMode());
+        adapter.setOnSelectionChangedListener(this::onSelectionChanged);
+        // После пересоздания прокрутка восстанавливается, когда страницы из ViewModel уже в адаптере
+        adapter.setStateRestorationPolicy(RecyclerView.Adapter.StateRestorationPolicy.PREVENT_WHEN_EMPTY);
         recyclerView.setAdapter(adapter);
 
-        // Применяем шрифт ко всему списку (если адаптер поддерживает)
-        // adapter.setTypeface(typeface);  // ← раскомментируй, если добавил метод в NoteAdapter
+        // Применяем шрифт ко всему списку
+        adapter.setTypeface(typeface);
 
         // === Кнопка добавления новой заметки ===
         fabAdd = findViewById(R.id.fabAdd);
         fabAdd.setOnClickListener(v -> showAddNoteDialog());
 
-        // Загружаем заметки из базы при запуске
-        loadNotesFromDb();
+        // Подключаем постраничную загрузку заметок из базы
+        // (первая страница уже читается с момента старта процесса, см. NotesApplication)
+        showAllNotes();
+        reportFullyDrawnOnFirstPage();
+
+        // Настройки применяются на месте: шрифт — перерисовкой строк, тема — recreate()
+        settings.font().observe(this, font -> adapter.setTypeface(FontCache.get(this, font)));
+        settings.theme().observe(this, theme -> {
+            if (!theme.equals(appliedTheme)) recreate();
+        });
+
+        Trace.endSection();
+    }
+
+    @Override
+    protected void onDestroy() {
+        // Отложенный поиск не должен сработать на уничтоженной активности
+        searchHandler.removeCallbacks(pendingSearch);
+        searchGeneration++;
+        super.onDestroy();
+    }
+
+    /**
+     * Отмечает момент, когда на экране нарисована первая страница заметок:
+     * reportFullyDrawn() для системной метрики и конец трассировки холодного старта.
+     */
+    private void reportFullyDrawnOnFirstPage() {
+        adapter.addOnPagesUpdatedListener(new Function0<Unit>() {
+            @Override
+            public Unit invoke() {
+                adapter.removeOnPagesUpdatedListener(this);
+                // Ждём, пока кадр со строками действительно уйдёт на экран
+                recyclerView.getViewTreeObserver().registerFrameCommitCallback(
+                        () -> StartupTrace.firstNotesDrawn(MainActivity.this));
+                return Unit.INSTANCE;
+            }
+        });
+    }
+
+    /**
+     * Переключает сортировку: ViewModel перечитывает список с начала в новом порядке.
+     */
+    private void changeSort(NoteSort newSort) {
+        if (newSort == viewModel.getSort()) return;
+        viewModel.setSort(newSort);
+        recyclerView.scrollToPosition(0);
+    }
+
+    /**
+     * Диалог выбора сортировки и фильтра списка.
+     */
+    private void showSortDialog() {
+        NoteSort[] sorts = NoteSort.values();
+        String[] labels = new String[sorts.length];
+        for (int i = 0; i < sorts.length; i++) {
+            labels[i] = sorts[i].label;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Сортировка")
+                .setSingleChoiceItems(labels, viewModel.getSort().ordinal(), (dialog, which) -> {
+                    changeSort(sorts[which]);
+                    dialog.dismiss();
+                })
+                .setNegativeButton("Отмена", null)
+                .show();
     }
 
     /**
-     * Загружает все заметки из базы данных в фоновом потоке
-     * и обновляет список на UI-потоке.
+     * Подписывает адаптер на постраничный поток заметок из ViewModel
+     * (при старте и после закрытия поиска).
+     * Страницы читаются по мере прокрутки (keyset в порядке выбранной сортировки),
+     * в памяти держится не больше NoteKeysetPagingSource.MAX_SIZE элементов.
+     * После любой записи в notes Room инвалидирует источник, а адаптер
+     * считает разницу в фоне и перерисовывает только изменённые строки.
      */
-    private void loadNotesFromDb() {
-        new Thread(() -> {
-            AppDatabase db = AppDatabase.getInstance(this);
-            NoteDao noteDao = db.noteDao();
-            List<Note> noteList = noteDao.getAll();
-
-            // Если база пустая — создаём приветственную заметку
-            if (noteList.isEmpty()) {
-                Note demo = new Note();
-                demo.title = "Добро пожаловать!";
-                demo.content = "Это пример заметки.\nНажми ➕ чтобы создать свою.";
-                demo.important = true;
-                noteDao.insert(demo);
-                noteList = noteDao.getAll();
+    private void showAllNotes() {
+        searchHandler.removeCallbacks(pendingSearch);
+        searchGeneration++;
+        if (!viewModel.notes().hasObservers()) {
+            viewModel.notes().observe(this, data ->
+                    adapter.submitData(getLifecycle(), adapter.withPrecomputedPreviews(data)));
+        }
+    }
+
+    /**
+     * Поиск по мере набора: запрос уходит, когда пользователь замер на SEARCH_DEBOUNCE_MS.
+     * Каждая буква сразу делает устаревшим уже идущий поиск — он бросается, не дождавшись паузы.
+     * Очищенная строка возвращает список без задержки.
+     */
+    private void scheduleSearch(String query) {
+        searchHandler.removeCallbacks(pendingSearch);
+        if (query == null || query.trim().isEmpty()) {
+            showAllNotes();
+            return;
+        }
+        searchGeneration++;
+        pendingQuery = query;
+        searchHandler.postDelayed(pendingSearch, SEARCH_DEBOUNCE_MS);
+    }
+
+    /**
+     * Выполняет поиск в фоне (FTS и похожие заголовки) и показывает результаты
+     * вместо постраничного списка. Пустой запрос возвращает все заметки.
+     */
+    private void searchNotes(String query) {
+        searchHandler.removeCallbacks(pendingSearch);
+        if (query == null || query.trim().isEmpty()) {
+            showAllNotes();
+            return;
+        }
+
+        // Пока показаны результаты поиска, страницы списка в адаптер не пишем
+        viewModel.notes().removeObservers(this);
+        int generation = ++searchGeneration;
+
+        // Пользователь уже ввёл другой запрос — поиск бросается, колбэк не приходит
+        repository.search(query, () -> generation != searchGeneration, results -> {
+            // Результат поиска показываем теми же строками списка: превью — фрагмент с совпадением
+            List<NoteSummary> rows = new ArrayList<>(results.size());
+            for (NoteSearchResult result : results) {
+                NoteSummary row = new NoteSummary();
+                row.id = result.id;
+                row.title = result.title;
+                row.preview = result.snippet;
+                row.important = result.important;
+                rows.add(row);
             }
 
-            // Передаём копию списка на UI-поток
-            List<Note> finalNoteList = noteList;
-            runOnUiThread(() -> {
-                notes.clear();
-                notes.addAll(finalNoteList);
-                adapter.notifyDataSetChanged();  // Обновляем весь список
-            });
-        }).start();
+            adapter.submitData(getLifecycle(), PagingData.from(rows));
+        });
     }
 
     /**
@@ -168,15 +314,11 @@ public class MainActivity extends AppCompatActivity {
 
             if (title.isEmpty() && content.isEmpty()) return;
 
-            new Thread(() -> {
-                AppDatabase db = AppDatabase.getInstance(this);
-                Note note = new Note();
-                note.title = title;
-                note.content = content;
-                note.important = false;
-                db.noteDao().insert(note);
-                runOnUiThread(this::loadNotesFromDb);
-            }).start();
+            Note note = new Note();
+            note.title = title;
+            note.content = content;
+            note.important = false;
+            repository.insert(note, null);
         });
 
         builder.setNegativeButton("Отмена", null);
@@ -185,45 +327,186 @@ public class MainActivity extends AppCompatActivity {
 
     /**
      * Открывает экран детального просмотра/редактирования заметки.
-     * Передаёт ID заметки и ждёт результата через launcher.
+     * Передаёт ID заметки — полная заметка загружается только в NoteDetailActivity.
+     * Правки список подхватит сам после записи в базу, результат нужен только для отмены удаления.
      */
-    private void openNoteDetail(Note note) {
+    private void openNoteDetail(NoteSummary note) {
         Intent intent = new Intent(this, NoteDetailActivity.class);
         intent.putExtra("noteId", note.id);
-        noteDetailLauncher.launch(intent);
+        detailLauncher.launch(intent);
+    }
+
+    private void onNoteDetailResult(ActivityResult result) {
+        Intent data = result.getData();
+        if (result.getResultCode() != RESULT_OK || data == null) return;
+        long deletedId = data.getLongExtra("deletedNoteId", -1);
+        if (deletedId != -1) {
+            showUndoDelete(Collections.singleton(deletedId));
+        }
+    }
+
+    // === Множественный выбор и удаление с отменой ===
+
+    private void startSelectionMode() {
+        if (selectionActionMode != null) return;
+        adapter.setSelectionMode(true);
+        selectionActionMode = startSupportActionMode(new ActionMode.Callback() {
+            @Override
+            public boolean onCreateActionMode(ActionMode mode, Menu menu) {
+                mode.getMenuInflater().inflate(R.menu.selection_menu, menu);
+                return true;
+            }
+
+            @Override
+            public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
+                return false;
+            }
+
+            @Override
+            public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
+                if (item.getItemId() == R.id.action_delete_selected) {
+                    deleteSelected();
+                    mode.finish();
+                    return true;
+                }
+                return false;
+            }
+
+            @Override
+            public void onDestroyActionMode(ActionMode mode) {
+                selectionActionMode = null;
+                adapter.setSelectionMode(false);
+            }
+        });
+    }
+
+    private void onSelectionChanged(int selectedCount) {
+        if (selectionActionMode == null) return;
+        if (selectedCount == 0) {
+            selectionActionMode.finish();
+        } else {
+            selectionActionMode.setTitle("Выбрано: " + selectedCount);
+        }
     }
 
     /**
-     * Показывает диалог подтверждения удаления заметки.
-     * Удаляет из БД и сразу из списка в памяти (для мгновенного обновления UI).
+     * Удаляет выбранные заметки без подтверждения: одна запись в базу на весь выбор,
+     * строки пропадают из списка сразу, а «Отменить» в Snackbar возвращает их.
      */
-    private void showDeleteNoteDialog(Note note) {
-        new AlertDialog.Builder(this)
-                .setTitle("Удалить заметку")
-                .setMessage("Вы действительно хотите удалить эту заметку?")
-                .setPositiveButton("Удалить", (d, w) -> {
-                    // Удаляем из базы данных в фоновом потоке
-                    new Thread(() -> {
-                        AppDatabase.getInstance(this).noteDao().delete(note);
-                    }).start();
-
-                    // Мгновенно удаляем из списка и уведомляем адаптер
-                    int position = notes.indexOf(note);
-                    if (position != -1) {
-                        notes.remove(position);
-                        adapter.notifyItemRemoved(position);
-                        // Обновляем позиции остальных элементов
-                        adapter.notifyItemRangeChanged(position, notes.size());
-                    }
-                })
-                .setNegativeButton("Отмена", null)
+    private void deleteSelected() {
+        Set<Long> ids = adapter.getSelectedIds();
+        if (ids.isEmpty()) return;
+        repository.softDelete(ids, null);
+        showUndoDelete(ids);
+    }
+
+    private void showUndoDelete(Set<Long> ids) {
+        Snackbar.make(recyclerView, "Удалено: " + ids.size(), Snackbar.LENGTH_LONG)
+                .setAnchorView(fabAdd)
+                .setAction("Отменить", v -> repository.restore(ids, null))
                 .show();
     }
 
+    /**
+     * Импортирует заметки из выбранного файла в фоне, прогресс — в подзаголовке Toolbar.
+     */
+    private void importNotes(Uri uri) {
+        if (uri == null) return;
+        try {
+            InputStream in = getContentResolver().openInputStream(uri);
+            repository.importNotes(in, bulkProgress("Импорт", "Импортировано заметок: "));
+        } catch (FileNotFoundException e) {
+            Toast.makeText(this, "Не удалось открыть файл", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    /**
+     * Выгружает все заметки в выбранный файл в фоне, прогресс — в подзаголовке Toolbar.
+     */
+    private void exportNotes(Uri uri) {
+        if (uri == null) return;
+        try {
+            OutputStream out = getContentResolver().openOutputStream(uri);
+            repository.exportNotes(out, bulkProgress("Экспорт", "Выгружено заметок: "));
+        } catch (FileNotFoundException e) {
+            Toast.makeText(this, "Не удалось создать файл", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    /**
+     * Выгружает в выбранный файл только изменения после прошлой такой выгрузки.
+     */
+    private void exportChanges(Uri uri) {
+        if (uri == null) return;
+        try {
+            OutputStream out = getContentResolver().openOutputStream(uri);
+            repository.exportChanges(out, bulkProgress("Экспорт изменений", "Выгружено изменений: "));
+        } catch (FileNotFoundException e) {
+            Toast.makeText(this, "Не удалось создать файл", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private NoteRepository.BulkListener bulkProgress(String action, String doneMessage) {
+        return new NoteRepository.BulkListener() {
+            @Override
+            public void onProgress(int processed) {
+                getSupportActionBar().setSubtitle(action + ": " + processed);
+            }
+
+            @Override
+            public void onComplete(int total) {
+                getSupportActionBar().setSubtitle(null);
+                Toast.makeText(MainActivity.this, doneMessage + total, Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onError(@NonNull Exception error) {
+                getSupportActionBar().setSubtitle(null);
+                Toast.makeText(MainActivity.this, action + ": ошибка — " + error.getMessage(),
+                        Toast.LENGTH_LONG).show();
+            }
+        };
+    }
+
     // === Меню в ActionBar ===
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main_menu, menu);
+
+        // Экран метрик — только для отладочных сборок
+        boolean debuggable = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        menu.findItem(R.id.action_metrics).setVisible(debuggable);
+
+        // === Поиск по заметкам в Toolbar ===
+        MenuItem searchItem = menu.findItem(R.id.action_search);
+        SearchView searchView = (SearchView) searchItem.getActionView();
+        searchView.setQueryHint("Поиск заметок");
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                searchNotes(query);
+                searchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                scheduleSearch(newText);
+                return true;
+            }
+        });
+        searchItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(MenuItem item) {
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(MenuItem item) {
+                showAllNotes();
+                return true;
+            }
+        });
         return true;
     }
 
@@ -233,6 +516,26 @@ public class MainActivity extends AppCompatActivity {
             startActivity(new Intent(this, SettingsActivity.class));
             return true;
         }
+        if (item.getItemId() == R.id.action_sort) {
+            showSortDialog();
+            return true;
+        }
+        if (item.getItemId() == R.id.action_import) {
+            importLauncher.launch(new String[]{"application/x-ndjson", "application/json", "text/*"});
+            return true;
+        }
+        if (item.getItemId() == R.id.action_export) {
+            exportLauncher.launch("notes.ndjson");
+            return true;
+        }
+        if (item.getItemId() == R.id.action_export_changes) {
+            exportChangesLauncher.launch("notes-changes.ndjson");
+            return true;
+        }
+        if (item.getItemId() == R.id.action_metrics) {
+            startActivity(new Intent(this, MetricsActivity.class));
+            return true;
+        }
         return super.onOptionsItemSelected(item);
     }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.example.notes;
+
+import android.net.Uri;
+import android.os.Bundle;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.notes.data.NoteCache;
+import com.example.notes.data.NoteRepository;
+import com.example.notes.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Отладочный экран метрик: гистограммы запросов, привязки строк и кадров,
+ * счётчики кэша заметок. Открывается из меню только в debuggable-сборке.
+ * Отчёт можно сохранить в файл и приложить к жалобе на медленную работу.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    private TextView textMetrics;
+
+    // Выбор файла для сохранения отчёта
+    private final ActivityResultLauncher<String> saveLauncher =
+            registerForActivityResult(
+                    new ActivityResultContracts.CreateDocument("text/plain"),
+                    this::saveReport);
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+        setTitle("Метрики");
+
+        textMetrics = findViewById(R.id.textMetrics);
+        findViewById(R.id.btnMetricsRefresh).setOnClickListener(v -> showReport());
+        findViewById(R.id.btnMetricsReset).setOnClickListener(v -> {
+            Metrics.reset();
+            showReport();
+        });
+        findViewById(R.id.btnMetricsSave).setOnClickListener(v ->
+                saveLauncher.launch("notes-metrics-" + System.currentTimeMillis() + ".txt"));
+
+        showReport();
+    }
+
+    private void showReport() {
+        StringWriter report = new StringWriter();
+        try {
+            writeReport(report);
+        } catch (IOException e) {
+            report.write(e.toString());  // StringWriter не бросает, но интерфейс требует
+        }
+        textMetrics.setText(report.toString());
+    }
+
+    /**
+     * Метрики плюс состояние кэша заметок (у него собственные счётчики).
+     */
+    private void writeReport(Writer out) throws IOException {
+        NoteCache cache = NoteRepository.getInstance(this).noteCache();
+        out.write("[note cache]\n" + cache + "\n\n");
+        Metrics.dump(out);
+    }
+
+    private void saveReport(Uri uri) {
+        if (uri == null) return;  // пользователь отменил выбор файла
+
+        try (OutputStream stream = getContentResolver().openOutputStream(uri)) {
+            if (stream == null) throw new IOException("Не удалось открыть файл");
+            Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+            writeReport(writer);
+            writer.flush();
+            Toast.makeText(this, "Отчёт сохранён", Toast.LENGTH_SHORT).show();
+        } catch (IOException | SecurityException e) {
+            Toast.makeText(this, "Ошибка сохранения: " + e.getMessage(), Toast.LENGTH_LONG).show();
+        }
+    }
+}
@@ -1,63 +1,92 @@
 package com.example.notes;
 
+import android.app.AlertDialog;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.graphics.Typeface;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.text.format.DateUtils;
+import android.text.method.KeyListener;
 import android.widget.Button;
 import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.example.notes.data.db.AppDatabase;
+import com.example.notes.data.ChunkedContentReader;
+import com.example.notes.data.NoteEdit;
+import com.example.notes.data.NoteRepository;
 import com.example.notes.data.db.Note;
-import com.example.notes.data.db.NoteDao;
+import com.example.notes.data.db.NoteDraft;
+import com.example.notes.data.db.NoteRevisionInfo;
+import com.example.notes.metrics.FrameStats;
+import com.example.notes.metrics.Metrics;
+import com.example.notes.util.AppSettings;
+import com.example.notes.util.FontCache;
+
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Активность для просмотра и редактирования одной заметки.
  * Отображает заголовок, содержание, чекбокс "Важно", кнопки "Сохранить" и "Удалить".
  * Поддерживает темы и кастомные шрифты из настроек.
+ * Правки автоматически сохраняются в черновик (с задержкой после последнего ввода),
+ * черновик переносится в заметку при сохранении или выходе и восстанавливается после падения.
+ * Большие заметки открываются сразу с первым куском текста, остальное дочитывается
+ * окнами при прокрутке; редактировать текст можно, когда он загружен целиком.
+ * Кнопка "История" показывает сохранённые версии; выбранную можно вернуть в редактор.
  */
 public class NoteDetailActivity extends AppCompatActivity {
 
     // Поля ввода и элементы управления
     private EditText editTitle, editContent;
     private CheckBox importantCheck;
-    private Button btnSave, btnDelete;
+    private Button btnSave, btnDelete, btnHistory;
+
+    // Доступ к базе: пул чтения и единый поток записи
+    private NoteRepository repository;
 
     // Текущая заметка (загружается из БД)
     private Note note;
     private long noteId = -1;  // ID заметки из Intent
+    private long loadStartedAt;  // для метрики времени открытия заметки
+
+    // Какие поля пользователь трогал после загрузки (остальные даже не сравниваем)
+    private boolean titleTouched, contentTouched;
+
+    // === Автосохранение черновика ===
+    // Черновик пишется через столько мс после последней правки, а не на каждое нажатие
+    private static final long AUTOSAVE_DELAY_MS = 1500;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable autosaveTask = this::writeDraft;
+    private boolean editingStarted;  // поля заполнены, дальнейшие изменения — правки пользователя
+    private boolean hasDraft;        // в базе лежит черновик этой заметки
+    private boolean closed;          // заметка уже сохранена или удалена кнопкой
+
+    // === Дочитывание большой заметки ===
+    private ChunkedContentReader contentReader;  // null — текст загружен целиком
+    private KeyListener contentKeyListener;      // ввод в поле текста отключён, пока он не дочитан
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
         // === Применяем выбранную пользователем тему ===
-        SharedPreferences prefs = getSharedPreferences("app_settings", MODE_PRIVATE);
-        String theme = prefs.getString("theme", "Светлая");
-        if ("Тёмная".equals(theme)) {
-            setTheme(R.style.Theme_Dark);
-        } else if ("Синяя".equals(theme)) {
-            setTheme(R.style.Theme_Blue);
-        } else {
-            setTheme(R.style.Theme_Light);
-        }
+        AppSettings settings = AppSettings.getInstance(this);
+        setTheme(AppSettings.themeStyle(settings.getTheme()));
 
-        // === Загружаем выбранный шрифт из assets ===
-        Typeface typeface;
-        try {
-            String fontFile = prefs.getString("font", "roboto_variablefont.ttf");
-            typeface = Typeface.createFromAsset(getAssets(), "fonts/" + fontFile);
-        } catch (Exception e) {
-            // Если шрифт не найден — используем стандартный
-            typeface = Typeface.DEFAULT;
-        }
+        // === Берём выбранный шрифт из кэша (разобран в фоне при старте приложения) ===
+        Typeface typeface = FontCache.get(this, settings.getFont());
 
         // Устанавливаем layout экрана
         setContentView(R.layout.activity_note_detail);
+        FrameStats.attach(this, "detail");
 
         // === Инициализация всех view ===
         editTitle = findViewById(R.id.editTitleDetail);
@@ -65,6 +94,7 @@ public class NoteDetailActivity extends AppCompatActivity {
         importantCheck = findViewById(R.id.checkImportant);
         btnSave = findViewById(R.id.btnSaveNote);
         btnDelete = findViewById(R.id.btnDeleteNote);
+        btnHistory = findViewById(R.id.btnHistory);
 
         // Применяем шрифт к полям ввода
         editTitle.setTypeface(typeface);
@@ -77,6 +107,7 @@ public class NoteDetailActivity extends AppCompatActivity {
             } else {
                 editTitle.setBackgroundColor(getResources().getColor(android.R.color.transparent));
             }
+            scheduleAutosave();
         });
 
         // Получаем ID заметки из Intent
@@ -88,105 +119,387 @@ public class NoteDetailActivity extends AppCompatActivity {
         }
 
         // Загружаем заметку из базы
+        repository = NoteRepository.getInstance(this);
+        loadStartedAt = Metrics.now();
         loadNoteFromDatabase();
 
         // === Слушатели кнопок ===
         btnSave.setOnClickListener(v -> saveNote());
-        btnDelete.setOnClickListener(v -> showDeleteConfirmationDialog());
+        btnDelete.setOnClickListener(v -> deleteNote());
+        btnHistory.setOnClickListener(v -> showHistory());
     }
 
     /**
-     * Загружает заметку по ID из базы данных в фоновом потоке
-     * и заполняет поля на UI-потоке.
+     * Показывает заметку: из кэша — сразу, в этом же кадре,
+     * иначе загружает её из базы в фоне и заполняет поля на UI-потоке.
      */
     private void loadNoteFromDatabase() {
-        new Thread(() -> {
-            AppDatabase db = AppDatabase.getInstance(this);
-            NoteDao noteDao = db.noteDao();
-            note = noteDao.getById(noteId);
-
-            runOnUiThread(() -> {
-                if (note != null) {
-                    editTitle.setText(note.title);
-                    editContent.setText(note.content);
-                    importantCheck.setChecked(note.important);
-
-                    // Применяем цвет "Важно" сразу после загрузки
-                    if (note.important) {
-                        editTitle.setBackgroundColor(getResources().getColor(R.color.yellow));
-                    }
-                } else {
-                    Toast.makeText(this, "Заметка не найдена", Toast.LENGTH_SHORT).show();
-                    finish();
+        Note cached = repository.getCached(noteId);
+        if (cached != null) {
+            showNote(cached);
+        } else {
+            repository.getById(noteId, new NoteRepository.Callback<Note>() {
+                @Override
+                public void onResult(Note loaded) {
+                    showNote(loaded);
+                }
+
+                @Override
+                public void onError(@NonNull Exception error) {
+                    finish();  // показывать нечего, сообщение уже на экране
                 }
             });
-        }).start();
+        }
+    }
+
+    private void showNote(Note loaded) {
+        Metrics.recordSince("ui.detail.load.us", loadStartedAt);
+        note = loaded;
+        if (note != null) {
+            editTitle.setText(note.title);
+            editContent.setText(note.content);
+            importantCheck.setChecked(note.important);
+            if (note.chunkCount > 0) {
+                startReadingChunks();
+            }
+
+            // Применяем цвет "Важно" сразу после загрузки
+            if (note.important) {
+                editTitle.setBackgroundColor(getResources().getColor(R.color.yellow));
+            }
+
+            // Проверяем, не остался ли черновик после аварийного завершения
+            repository.getDraft(noteId, this::restoreDraft);
+        } else {
+            Toast.makeText(this, "Заметка не найдена", Toast.LENGTH_SHORT).show();
+            finish();
+        }
     }
 
     /**
-     * Сохраняет изменения заметки в базу данных.
+     * Большая заметка: показан только первый кусок. Остальное дочитываем окнами,
+     * когда поле текста прокручено до конца, или целиком — по нажатию на поле.
+     */
+    private void startReadingChunks() {
+        contentReader = repository.openContentReader(note);
+        contentKeyListener = editContent.getKeyListener();
+        editContent.setKeyListener(null);
+
+        editContent.setOnScrollChangeListener((v, scrollX, scrollY, oldScrollX, oldScrollY) -> {
+            if (!v.canScrollVertically(1)) readNextWindow();
+        });
+        editContent.setOnClickListener(v -> {
+            Toast.makeText(this, "Загружаем заметку целиком…", Toast.LENGTH_SHORT).show();
+            ChunkedContentReader reader = contentReader;
+            if (reader != null) {
+                reader.readRemaining(text -> onChunksRead(reader, text));
+            }
+        });
+
+        // Первое окно читаем сразу, чтобы было что прокручивать
+        readNextWindow();
+    }
+
+    private void readNextWindow() {
+        ChunkedContentReader reader = contentReader;
+        if (reader != null) {
+            reader.readNext(text -> onChunksRead(reader, text));
+        }
+    }
+
+    /**
+     * Дописывает прочитанное окно. Когда текст дочитан, он становится
+     * исходным значением для сравнения правок, и поле снова редактируется.
+     */
+    private void onChunksRead(ChunkedContentReader reader, String text) {
+        if (reader != contentReader) return;  // текст уже заменён черновиком
+
+        editContent.append(text);
+        if (reader.isComplete()) {
+            note.content = editContent.getText().toString();
+            finishReadingChunks();
+            if (editingStarted) {
+                attachContentWatcher();
+            }
+        }
+    }
+
+    private void finishReadingChunks() {
+        if (contentReader == null) return;
+        contentReader.cancel();
+        contentReader = null;
+        editContent.setOnScrollChangeListener(null);
+        editContent.setOnClickListener(null);
+        editContent.setKeyListener(contentKeyListener);
+    }
+
+    /**
+     * Накладывает найденный черновик поверх загруженной заметки
+     * и включает отслеживание правок.
+     */
+    private void restoreDraft(NoteDraft draft) {
+        if (draft != null) {
+            hasDraft = true;
+            if (draft.title != null) {
+                editTitle.setText(draft.title);
+                titleTouched = true;
+            }
+            if (draft.content != null) {
+                // В черновике полный текст — дочитывать базу больше не нужно
+                finishReadingChunks();
+                editContent.setText(draft.content);
+                contentTouched = true;
+            }
+            if (draft.important != null) {
+                importantCheck.setChecked(draft.important);
+            }
+            Toast.makeText(this, "Восстановлены несохранённые правки", Toast.LENGTH_SHORT).show();
+        }
+
+        // Следим за правками только после заполнения полей
+        editTitle.addTextChangedListener(touchWatcher(() -> {
+            titleTouched = true;
+            scheduleAutosave();
+        }));
+        if (contentReader == null) {
+            attachContentWatcher();
+        }
+        editingStarted = true;
+    }
+
+    private void attachContentWatcher() {
+        editContent.addTextChangedListener(touchWatcher(() -> {
+            contentTouched = true;
+            scheduleAutosave();
+        }));
+    }
+
+    /**
+     * Откладывает запись черновика: каждая новая правка сдвигает её ещё на AUTOSAVE_DELAY_MS.
+     */
+    private void scheduleAutosave() {
+        if (!editingStarted || closed) return;
+        handler.removeCallbacks(autosaveTask);
+        handler.postDelayed(autosaveTask, AUTOSAVE_DELAY_MS);
+    }
+
+    /**
+     * Пишет текущие правки в черновик (сама запись — на потоке записи, не на главном).
+     */
+    private void writeDraft() {
+        if (note == null || closed) return;
+
+        NoteEdit edit = collectEdit();
+        if (!edit.isEmpty()) {
+            repository.saveDraft(edit);
+            hasDraft = true;
+        } else if (hasDraft) {
+            // Пользователь вернул всё как было — черновик больше не нужен
+            repository.discardDraft(note.id);
+            hasDraft = false;
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        handler.removeCallbacks(autosaveTask);
+        if (note == null || closed || !editingStarted) return;
+
+        if (isFinishing()) {
+            // Выход без кнопки "Сохранить" — переносим правки в заметку
+            NoteEdit edit = collectEdit();
+            if (!edit.isEmpty() || hasDraft) {
+                closed = true;
+                repository.applyEdit(edit, null);
+            }
+        } else {
+            // Уходим в фон — процесс могут убить, фиксируем черновик сразу
+            writeDraft();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (contentReader != null) {
+            contentReader.cancel();
+        }
+    }
+
+    /**
+     * TextWatcher, который лишь отмечает, что поле редактировали.
+     */
+    private static TextWatcher touchWatcher(Runnable onTouched) {
+        return new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                onTouched.run();
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+            }
+        };
+    }
+
+    /**
+     * Собирает только реально изменённые поля: тронутые поля сравниваются
+     * с загруженными значениями, нетронутые не читаются из EditText вовсе.
+     */
+    private NoteEdit collectEdit() {
+        NoteEdit edit = new NoteEdit(note.id);
+        if (titleTouched) {
+            String newTitle = editTitle.getText().toString().trim();
+            if (!newTitle.equals(note.title)) edit.title = newTitle;
+        }
+        if (contentTouched) {
+            String newContent = editContent.getText().toString().trim();
+            if (!newContent.equals(note.content)) edit.content = newContent;
+        }
+        if (importantCheck.isChecked() != note.important) {
+            edit.important = importantCheck.isChecked();
+        }
+        return edit;
+    }
+
+    /**
+     * Сохраняет изменения заметки в базу данных — только изменённые колонки.
+     * Если ничего не менялось, просто закрывает экран без записи.
      * Возвращает результат в MainActivity (noteChanged = true).
      */
     private void saveNote() {
         if (note == null) return;
 
-        // Получаем новые значения из полей
-        String newTitle = editTitle.getText().toString().trim();
-        String newContent = editContent.getText().toString().trim();
-        boolean newImportant = importantCheck.isChecked();
+        handler.removeCallbacks(autosaveTask);
+        closed = true;
 
-        // Обновляем объект заметки
-        note.title = newTitle;
-        note.content = newContent;
-        note.important = newImportant;
+        NoteEdit edit = collectEdit();
+        if (edit.isEmpty()) {
+            if (hasDraft) repository.discardDraft(note.id);
+            finish();
+            return;
+        }
 
-        new Thread(() -> {
-            AppDatabase db = AppDatabase.getInstance(this);
-            db.noteDao().update(note);
+        // Обновляем объект заметки
+        if (edit.title != null) note.title = edit.title;
+        if (edit.content != null) note.content = edit.content;
+        if (edit.important != null) note.important = edit.important;
 
-            runOnUiThread(() -> {
-                Toast.makeText(this, "Заметка сохранена", Toast.LENGTH_SHORT).show();
+        repository.applyEdit(edit, new NoteRepository.Callback<Void>() {
+            @Override
+            public void onResult(Void ignored) {
+                Toast.makeText(NoteDetailActivity.this, "Заметка сохранена", Toast.LENGTH_SHORT).show();
 
                 // Сообщаем MainActivity, что заметка изменена
                 Intent result = new Intent();
                 result.putExtra("noteChanged", true);
                 setResult(RESULT_OK, result);
                 finish();
-            });
-        }).start();
+            }
+
+            @Override
+            public void onError(@NonNull Exception error) {
+                // Правки остались в полях и в черновике — можно сохранить ещё раз
+                closed = false;
+            }
+        });
     }
 
+    // === История правок ===
+
+    // В диалоге версии показываем только начало текста — целиком он вернётся в редактор
+    private static final int REVISION_PREVIEW_CHARS = 2000;
+
     /**
-     * Показывает диалог подтверждения удаления заметки.
+     * Список сохранённых версий заметки, от новых к старым.
      */
-    private void showDeleteConfirmationDialog() {
-        new android.app.AlertDialog.Builder(this)
-                .setTitle("Удалить заметку")
-                .setMessage("Вы действительно хотите удалить эту заметку?")
-                .setPositiveButton("Удалить", (dialog, which) -> deleteNote())
-                .setNegativeButton("Отмена", null)
-                .show();
+    private void showHistory() {
+        if (note == null) return;
+        repository.getHistory(note.id, revisions -> {
+            if (isFinishing()) return;
+            if (revisions.isEmpty()) {
+                Toast.makeText(this, "История пуста — версии появятся после сохранения", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            String[] labels = new String[revisions.size()];
+            for (int i = 0; i < labels.length; i++) {
+                NoteRevisionInfo revision = revisions.get(i);
+                labels[i] = "Версия " + revision.rev + " · "
+                        + DateUtils.formatDateTime(this, revision.createdAt,
+                        DateUtils.FORMAT_SHOW_DATE | DateUtils.FORMAT_SHOW_TIME)
+                        + " · " + revision.length + " симв.";
+            }
+            new AlertDialog.Builder(this)
+                    .setTitle("История")
+                    .setItems(labels, (dialog, which) -> showRevision(revisions, which))
+                    .setNegativeButton("Закрыть", null)
+                    .show();
+        });
     }
 
     /**
-     * Удаляет заметку из базы и возвращает результат в MainActivity.
+     * Текст выбранной версии с кнопкой возврата в редактор.
      */
-    private void deleteNote() {
-        if (note == null) return;
+    private void showRevision(List<NoteRevisionInfo> revisions, int index) {
+        NoteRevisionInfo revision = revisions.get(index);
+        repository.getRevisionText(note.id, revision.rev, text -> {
+            if (isFinishing() || text == null) return;
+            String preview = text.length() > REVISION_PREVIEW_CHARS
+                    ? text.substring(0, REVISION_PREVIEW_CHARS) + "…" : text;
+            new AlertDialog.Builder(this)
+                    .setTitle(revision.title != null && !revision.title.isEmpty()
+                            ? revision.title : "Версия " + revision.rev)
+                    .setMessage(preview)
+                    .setPositiveButton("Восстановить", (dialog, which) -> restoreRevision(revision.title, text))
+                    .setNegativeButton("Отмена", null)
+                    .show();
+        });
+    }
 
-        new Thread(() -> {
-            AppDatabase db = AppDatabase.getInstance(this);
-            db.noteDao().delete(note);
+    /**
+     * Подставляет версию в поля как обычную правку: в заметку она попадёт при сохранении
+     * и сама станет новой версией истории.
+     */
+    private void restoreRevision(String title, String text) {
+        boolean watcherPending = contentReader != null && editingStarted;
+        finishReadingChunks();  // версия — полный текст, дочитывать базу не нужно
+        editTitle.setText(title);
+        editContent.setText(text);
+        titleTouched = true;
+        contentTouched = true;
+        if (watcherPending) {
+            attachContentWatcher();
+        }
+        scheduleAutosave();
+    }
 
-            runOnUiThread(() -> {
-                Toast.makeText(this, "Заметка удалена", Toast.LENGTH_SHORT).show();
+    /**
+     * Удаляет заметку (мягко) и возвращает её id в MainActivity —
+     * вместо подтверждения там показывается Snackbar с «Отменить».
+     */
+    private void deleteNote() {
+        if (note == null) return;
+        handler.removeCallbacks(autosaveTask);
+        closed = true;  // черновик удалится каскадом вместе с заметкой при очистке надгробий
 
-                // Сообщаем MainActivity, что заметка удалена
+        repository.softDelete(Collections.singleton(note.id), new NoteRepository.Callback<Void>() {
+            @Override
+            public void onResult(Void ignored) {
                 Intent result = new Intent();
-                result.putExtra("noteDeleted", true);
+                result.putExtra("deletedNoteId", note.id);
                 setResult(RESULT_OK, result);
                 finish();
-            });
-        }).start();
+            }
+
+            @Override
+            public void onError(@NonNull Exception error) {
+                closed = false;
+            }
+        });
     }
 }
\ No newline at end of file
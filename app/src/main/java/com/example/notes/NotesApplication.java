@@ -0,0 +1,53 @@
+package com.example.notes;
+
+import android.app.Application;
+import android.os.Looper;
+import android.os.Trace;
+
+import com.example.notes.data.NoteRepository;
+import com.example.notes.data.maintenance.DatabaseMaintenanceJob;
+import com.example.notes.data.sync.SyncJob;
+import com.example.notes.util.AppSettings;
+import com.example.notes.util.FontCache;
+import com.example.notes.util.StartupTrace;
+
+/**
+ * Класс приложения — инициализация, общая для всех активностей.
+ * Сразу при старте процесса, параллельно с созданием MainActivity, в фоне
+ * открывает базу с первой страницей заметок и прогревает шрифт, выбранный в настройках.
+ * Когда главный поток освободится, планирует обслуживание базы в простое, по сигналу нехватки памяти ужимает кэш заметок.
+ */
+public class NotesApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        StartupTrace.begin();
+        Trace.beginSection("NotesApplication.onCreate");
+
+        AppSettings settings = AppSettings.getInstance(this);
+
+        // === Открываем базу и читаем первую страницу списка, пока создаётся первая активность ===
+        NoteRepository.getInstance(this).prefetchFirstPage(settings.getSort());
+
+        // === Прогреваем выбранный шрифт ===
+        FontCache.preload(this, settings.getFont());
+
+        // === Обслуживание базы в простое (checkpoint, VACUUM, ANALYZE) — не на пути к первому кадру ===
+        // Там же стираем надгробия заметок, удалённых в прошлых запусках и планируем синхронизацию
+        Looper.myQueue().addIdleHandler(() -> {
+            DatabaseMaintenanceJob.schedule(this);
+            SyncJob.schedule(this);
+            NoteRepository.getInstance(this).purgeDeleted();
+            return false;
+        });
+
+        Trace.endSection();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        NoteRepository.getInstance(this).noteCache().trimMemory(level);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.notes;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.paging.Pager;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
+
+import com.example.notes.data.NoteRepository;
+import com.example.notes.data.db.NoteSummary;
+import com.example.notes.data.paging.NoteKeysetPagingSource;
+import com.example.notes.data.paging.NotePageKey;
+import com.example.notes.data.paging.NoteSort;
+import com.example.notes.util.AppSettings;
+
+/**
+ * Состояние списка заметок, переживающее пересоздание MainActivity
+ * (смена темы, поворот экрана): пейджер и загруженные страницы
+ * кэшируются в ViewModel, новая активность получает их без запросов к базе.
+ */
+public class NotesViewModel extends AndroidViewModel {
+
+    private final NoteRepository repository;
+    private final AppSettings settings;
+
+    // Текущая сортировка; источник страниц читает её при каждом создании
+    private volatile NoteSort sort;
+    private NoteKeysetPagingSource currentSource;
+
+    private final LiveData<PagingData<NoteSummary>> notes;
+
+    public NotesViewModel(@NonNull Application application) {
+        super(application);
+        repository = NoteRepository.getInstance(application);
+        settings = AppSettings.getInstance(application);
+        sort = settings.getSort();
+
+        // Один пейджер на всё время жизни: смена сортировки инвалидирует источник,
+        // а не создаёт новый поток страниц
+        Pager<NotePageKey, NoteSummary> pager = new Pager<>(
+                NoteKeysetPagingSource.createConfig(),
+                this::createPagingSource);
+        notes = PagingLiveData.cachedIn(PagingLiveData.getLiveData(pager), this);
+    }
+
+    private synchronized NoteKeysetPagingSource createPagingSource() {
+        currentSource = repository.createPagingSource(sort);
+        return currentSource;
+    }
+
+    /**
+     * Постраничный поток заметок в текущей сортировке.
+     */
+    @NonNull
+    public LiveData<PagingData<NoteSummary>> notes() {
+        return notes;
+    }
+
+    @NonNull
+    public NoteSort getSort() {
+        return sort;
+    }
+
+    /**
+     * Запоминает сортировку и перечитывает список с начала:
+     * ключи старого порядка к новому не подходят.
+     */
+    public synchronized void setSort(@NonNull NoteSort newSort) {
+        if (newSort == sort) return;
+        sort = newSort;
+        settings.setSort(newSort);
+        if (currentSource != null) {
+            currentSource.invalidateFromTop();
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package com.example.notes;
 
-import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
@@ -9,10 +7,14 @@ import android.widget.Spinner;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.notes.util.AppSettings;
+import com.example.notes.util.FontCache;
+
 /**
  * Активность настроек приложения.
  * Позволяет выбрать шрифт и тему оформления.
- * Сохраняет настройки в SharedPreferences и перезапускает MainActivity для применения изменений.
+ * Сохраняет настройки в AppSettings и закрывается: открытые экраны
+ * применяют новый шрифт и тему сами, без перезапуска и перечитывания списка.
  */
 public class SettingsActivity extends AppCompatActivity {
 
@@ -48,7 +50,7 @@ public class SettingsActivity extends AppCompatActivity {
         spinnerFont.setAdapter(fontAdapter);
 
         // === Настройка спиннера тем ===
-        String[] themes = {"Светлая", "Тёмная", "Синяя"};
+        String[] themes = {AppSettings.THEME_LIGHT, AppSettings.THEME_DARK, AppSettings.THEME_BLUE};
         ArrayAdapter<String> themeAdapter = new ArrayAdapter<>(
                 this,
                 android.R.layout.simple_spinner_item,
@@ -58,9 +60,9 @@ public class SettingsActivity extends AppCompatActivity {
         spinnerTheme.setAdapter(themeAdapter);
 
         // === Загрузка сохранённых настроек ===
-        SharedPreferences prefs = getSharedPreferences("app_settings", MODE_PRIVATE);
-        String savedFont = prefs.getString("font", "roboto_variablefont.ttf");   // дефолтный шрифт
-        String savedTheme = prefs.getString("theme", "Светлая");                 // дефолтная тема
+        AppSettings settings = AppSettings.getInstance(this);
+        String savedFont = settings.getFont();
+        String savedTheme = settings.getTheme();
 
         // Устанавливаем текущие значения в спиннеры
         spinnerFont.setSelection(fontAdapter.getPosition(savedFont));
@@ -68,22 +70,14 @@ public class SettingsActivity extends AppCompatActivity {
 
         // === Слушатель кнопки "Сохранить" ===
         btnSave.setOnClickListener(v -> {
-            SharedPreferences.Editor editor = prefs.edit();
-
-            // Сохраняем выбранный шрифт (имя файла)
-            editor.putString("font", (String) spinnerFont.getSelectedItem());
-
-            // Сохраняем выбранную тему
-            editor.putString("theme", (String) spinnerTheme.getSelectedItem());
+            String font = (String) spinnerFont.getSelectedItem();
 
-            editor.apply();  // Асинхронное сохранение
+            // Шрифт разбираем в фоне, пока закрывается экран — список получит его из кэша
+            FontCache.preload(this, font);
 
-            // Перезапускаем MainActivity, чтобы настройки применились
-            Intent intent = new Intent(this, MainActivity.class);
-            intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
-            startActivity(intent);
+            // Сохраняем шрифт (имя файла) и тему; MainActivity применит их, вернувшись на экран
+            settings.setAppearance(font, (String) spinnerTheme.getSelectedItem());
 
-            // Закрываем текущую активность
             finish();
         });
     }
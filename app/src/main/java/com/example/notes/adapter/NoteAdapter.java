@@ -1,57 +1,209 @@
 package com.example.notes.adapter;
 
+import android.graphics.Typeface;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.paging.PagingData;
+import androidx.paging.PagingDataAdapter;
+import androidx.paging.PagingDataTransforms;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.notes.R;
-import com.example.notes.data.db.Note;
+import com.example.notes.data.db.NoteSummary;
+import com.example.notes.metrics.Metrics;
 import com.google.android.material.card.MaterialCardView;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
-public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.NoteViewHolder> {
+public class NoteAdapter extends PagingDataAdapter<NoteSummary, NoteAdapter.NoteViewHolder> {
 
     // Интерфейсы для обработки кликов
     public interface OnNoteClickListener {
-        void onNoteClick(Note note);
+        void onNoteClick(NoteSummary note);
     }
 
     public interface OnNoteLongClickListener {
-        void onNoteLongClick(Note note);
+        void onNoteLongClick(NoteSummary note);
     }
 
-    private final List<Note> notes;
+    // Изменился набор выбранных заметок (в режиме множественного выбора)
+    public interface OnSelectionChangedListener {
+        void onSelectionChanged(int selectedCount);
+    }
+
+    // Частичная перепривязка: у карточки поменялась только отметка выбора
+    private static final Object PAYLOAD_SELECTION = new Object();
+
+    // Сравнение элементов при обновлении страниц: одна и та же заметка — один и тот же id
+    private static final DiffUtil.ItemCallback<NoteSummary> DIFF_CALLBACK = new DiffUtil.ItemCallback<NoteSummary>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull NoteSummary oldItem, @NonNull NoteSummary newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull NoteSummary oldItem, @NonNull NoteSummary newItem) {
+            return oldItem.important == newItem.important
+                    && Objects.equals(oldItem.title, newItem.title)
+                    && Objects.equals(oldItem.preview, newItem.preview);
+        }
+    };
+
     private final OnNoteClickListener clickListener;
     private final OnNoteLongClickListener longClickListener;
+    private OnSelectionChangedListener selectionListener;
+
+    // === Множественный выбор ===
+    // Храним id, а не позиции: страницы подгружаются и сдвигаются, id заметки постоянен
+    private boolean selectionMode;
+    private final Set<Long> selectedIds = new LinkedHashSet<>();
+
+    // Шрифт из настроек (берётся из FontCache, null — шрифт темы)
+    private Typeface typeface;
+
+    // Превью, разложенные в фоне; параметры раскладки снимаются с шаблонной карточки
+    final PreviewTextCache previewCache = new PreviewTextCache();
+    private TextView metricsTemplate;
 
     public NoteAdapter(
-            @NonNull List<Note> notes,
             OnNoteClickListener clickListener,
             OnNoteLongClickListener longClickListener) {
-        this.notes = notes;
+        super(DIFF_CALLBACK);
         this.clickListener = clickListener;
         this.longClickListener = longClickListener;
     }
 
+    /**
+     * Устанавливает шрифт для заголовка и текста всех карточек.
+     */
+    public void setTypeface(@Nullable Typeface typeface) {
+        if (this.typeface == typeface) return;
+        this.typeface = typeface;
+        if (metricsTemplate != null) updateTextMetrics(metricsTemplate);
+        notifyItemRangeChanged(0, getItemCount());
+    }
+
+    /**
+     * Добавляет к потоку страниц фоновую раскладку превью: каждая страница
+     * раскладывается на отдельном потоке до того, как попадёт в адаптер.
+     */
+    @NonNull
+    public PagingData<NoteSummary> withPrecomputedPreviews(@NonNull PagingData<NoteSummary> data) {
+        return PagingDataTransforms.map(data, PreviewTextCache.EXECUTOR, note -> {
+            previewCache.precompute(note);
+            return note;
+        });
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        // Параметры раскладки нужны до прихода первой страницы — берём их с шаблонной карточки
+        View template = LayoutInflater.from(recyclerView.getContext())
+                .inflate(R.layout.item_note, recyclerView, false);
+        metricsTemplate = template.findViewById(R.id.textContent);
+        updateTextMetrics(metricsTemplate);
+    }
+
+    private void updateTextMetrics(TextView textContent) {
+        if (typeface != null) textContent.setTypeface(typeface);
+        previewCache.setParams(TextViewCompat.getTextMetricsParams(textContent));
+    }
+
+    public void setOnSelectionChangedListener(@Nullable OnSelectionChangedListener listener) {
+        this.selectionListener = listener;
+    }
+
+    /**
+     * Включает или выключает режим выбора. При выключении выбор сбрасывается;
+     * перепривязываются только отметки, а не тексты карточек.
+     */
+    public void setSelectionMode(boolean enabled) {
+        if (selectionMode == enabled) return;
+        selectionMode = enabled;
+        if (!enabled) selectedIds.clear();
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+    }
+
+    public boolean isSelectionMode() {
+        return selectionMode;
+    }
+
+    /**
+     * Выбранные заметки (копия, в порядке выбора).
+     */
+    @NonNull
+    public Set<Long> getSelectedIds() {
+        return new LinkedHashSet<>(selectedIds);
+    }
+
+    private void toggleSelection(@NonNull NoteViewHolder holder, long id) {
+        if (!selectedIds.remove(id)) selectedIds.add(id);
+        holder.cardView.setChecked(selectedIds.contains(id));
+        if (selectionListener != null) {
+            selectionListener.onSelectionChanged(selectedIds.size());
+        }
+    }
+
     @NonNull
     @Override
     public NoteViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_note, parent, false);
-        return new NoteViewHolder(view);
+        NoteViewHolder holder = new NoteViewHolder(view);
+        applyTypeface(holder);
+        if (metricsTemplate == null) {
+            metricsTemplate = holder.textContent;
+            updateTextMetrics(metricsTemplate);
+        }
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull NoteViewHolder holder, int position) {
-        Note note = notes.get(position);
+        NoteSummary note = getItem(position);
+        if (note == null) return;
+        long start = Metrics.now();
+        bind(holder, note);
+        Metrics.recordSince("ui.bind.us", start);
+    }
 
+    @Override
+    public void onBindViewHolder(@NonNull NoteViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        NoteSummary note = peek(position);
+        if (note == null) return;
+        holder.cardView.setChecked(selectionMode && selectedIds.contains(note.id));
+    }
+
+    /**
+     * Заполняет карточку данными заметки (вынесено отдельно, чтобы замерять стоимость привязки).
+     */
+    void bind(@NonNull NoteViewHolder holder, @NonNull NoteSummary note) {
         holder.textTitle.setText(note.title != null ? note.title : "");
-        holder.textContent.setText(note.content != null ? note.content : "");
+        if (holder.typeface != typeface) applyTypeface(holder);
+
+        // Превью, разложенное в фоне, отдаём как есть; иначе (поиск, смена шрифта) — обычный setText
+        PrecomputedTextCompat preview = previewCache.get(note, holder.metricsParams);
+        if (preview != null) {
+            TextViewCompat.setPrecomputedText(holder.textContent, preview);
+        } else {
+            holder.textContent.setText(note.preview != null ? note.preview : "");
+        }
 
         // Цвет карточки в зависимости от важности
         int backgroundColor;
@@ -61,38 +213,54 @@ public class NoteAdapter extends RecyclerView.Adapter<NoteAdapter.NoteViewHolder
             backgroundColor = holder.itemView.getResources().getColor(android.R.color.white);
         }
         holder.cardView.setCardBackgroundColor(backgroundColor);
+        holder.cardView.setChecked(selectionMode && selectedIds.contains(note.id));
 
-        // Обработка кликов
+        // Обработка кликов: в режиме выбора клик отмечает карточку
         holder.itemView.setOnClickListener(v -> {
-            if (clickListener != null) {
+            if (selectionMode) {
+                toggleSelection(holder, note.id);
+            } else if (clickListener != null) {
                 clickListener.onNoteClick(note);
             }
         });
 
+        // Долгое нажатие включает режим выбора (его включает слушатель) и отмечает карточку
         holder.itemView.setOnLongClickListener(v -> {
-            if (longClickListener != null) {
+            if (!selectionMode && longClickListener != null) {
                 longClickListener.onNoteLongClick(note);
             }
+            if (selectionMode) {
+                toggleSelection(holder, note.id);
+            }
             return true;
         });
     }
 
-    @Override
-    public int getItemCount() {
-        return notes != null ? notes.size() : 0;
+    // ViewHolder
+    // Шрифт карточки и параметры раскладки её превью: снимаются с TextView только при смене шрифта,
+    // а не на каждой привязке
+    private void applyTypeface(@NonNull NoteViewHolder holder) {
+        if (typeface != null) {
+            holder.textTitle.setTypeface(typeface, Typeface.BOLD);
+            holder.textContent.setTypeface(typeface);
+        }
+        holder.typeface = typeface;
+        holder.metricsParams = TextViewCompat.getTextMetricsParams(holder.textContent);
     }
 
-    // ViewHolder
     static class NoteViewHolder extends RecyclerView.ViewHolder {
         TextView textTitle;
         TextView textContent;
         MaterialCardView cardView;
+        Typeface typeface;
+        PrecomputedTextCompat.Params metricsParams;
 
         public NoteViewHolder(@NonNull View itemView) {
             super(itemView);
             textTitle = itemView.findViewById(R.id.textTitle);
             textContent = itemView.findViewById(R.id.textContent);
             cardView = itemView.findViewById(R.id.cardNote);
+            cardView.setCheckable(true);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+package com.example.notes.adapter;
+
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.text.PrecomputedTextCompat;
+
+import com.example.notes.data.db.NoteSummary;
+import com.example.notes.data.paging.NoteKeysetPagingSource;
+import com.example.notes.metrics.Metrics;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Заранее измеренные превью строк списка (PrecomputedTextCompat).
+ * Раскладка текста считается в фоне, когда страница приходит из базы,
+ * и кэшируется по id заметки и её версии (updated_at) — привязка строки
+ * на главном потоке только отдаёт готовый текст TextView.
+ * Параметры раскладки (шрифт, размер, перенос) берутся с TextView карточки;
+ * при их смене кэш сбрасывается.
+ */
+public final class PreviewTextCache {
+
+    // Поток раскладки: не занимаем им пул чтения базы
+    static final Executor EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "notes-text-layout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Страницы в памяти пейджера плюс запас на поиск и прокрутку туда-обратно
+    private static final int MAX_ENTRIES = NoteKeysetPagingSource.MAX_SIZE * 2;
+
+    private static final class Entry {
+        final long version;
+        final String source;
+        final PrecomputedTextCompat.Params params;
+        final PrecomputedTextCompat text;
+
+        Entry(long version, String source, PrecomputedTextCompat.Params params, PrecomputedTextCompat text) {
+            this.version = version;
+            this.source = source;
+            this.params = params;
+            this.text = text;
+        }
+    }
+
+    private final LruCache<Long, Entry> entries = new LruCache<>(MAX_ENTRIES);
+    private volatile PrecomputedTextCompat.Params params;
+
+    /**
+     * Параметры раскладки TextView превью. Если они изменились, старые раскладки не годятся.
+     */
+    void setParams(@NonNull PrecomputedTextCompat.Params newParams) {
+        if (newParams.equals(params)) return;
+        params = newParams;
+        entries.evictAll();
+    }
+
+    /**
+     * Считает раскладку превью (вызывается в фоне, до того как страница попадёт в адаптер).
+     */
+    void precompute(@NonNull NoteSummary note) {
+        PrecomputedTextCompat.Params current = params;
+        if (current == null || note.preview == null || note.preview.isEmpty()) return;
+        if (lookup(note, current) != null) return;
+
+        long start = Metrics.now();
+        PrecomputedTextCompat text = PrecomputedTextCompat.create(note.preview, current);
+        Metrics.recordSince("ui.preview.precompute.us", start);
+        entries.put(note.id, new Entry(note.updatedAt, note.preview, current, text));
+    }
+
+    /**
+     * Готовая раскладка для строки или null, если её нет или она посчитана
+     * для другого текста или других параметров TextView. viewParams — параметры,
+     * снятые с карточки при смене её шрифта (адаптер не читает их на каждой привязке).
+     */
+    @Nullable
+    PrecomputedTextCompat get(@NonNull NoteSummary note, @NonNull PrecomputedTextCompat.Params viewParams) {
+        return lookup(note, viewParams);
+    }
+
+    private PrecomputedTextCompat lookup(NoteSummary note, PrecomputedTextCompat.Params viewParams) {
+        Entry entry = entries.get(note.id);
+        if (entry == null || entry.version != note.updatedAt || !entry.source.equals(note.preview)) {
+            return null;
+        }
+        return entry.params.equals(viewParams) ? entry.text : null;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.notes.data;
+
+import android.os.Handler;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.notes.data.db.AppDatabase;
+import com.example.notes.data.db.NoteDao;
+import com.example.notes.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Единственный поток записи в базу.
+ * Записи, пришедшие почти одновременно, склеиваются в одну транзакцию —
+ * серия правок даёт один fsync вместо N. Колбэки вызываются на главном потоке
+ * после коммита транзакции, в порядке постановки записей в очередь;
+ * запись, которая не прошла, получает onError вместо onResult.
+ */
+final class BatchingWriter {
+
+    private static final String TAG = "BatchingWriter";
+
+    // Сколько ждём следующую запись после первой, прежде чем закрыть пачку
+    private static final long BATCH_WINDOW_MS = 8;
+
+    // Максимум операций в одной транзакции — чтобы не держать блокировку записи долго
+    private static final int MAX_BATCH_SIZE = 200;
+
+    /**
+     * Одна операция записи. Выполняется внутри общей транзакции пачки.
+     */
+    interface Write<T> {
+        T run(NoteDao noteDao);
+    }
+
+    /**
+     * Узнаёт о судьбе транзакций (вызывается на потоке записи).
+     */
+    interface TransactionListener {
+        // Транзакция закоммичена
+        void onCommitted();
+
+        // Транзакция откатилась — изменения, сделанные её операциями вне базы, недействительны
+        void onRolledBack();
+    }
+
+    private static final class Op<T> {
+        final Write<T> write;
+        final NoteRepository.Callback<T> callback;
+        final CompletableFuture<T> future;
+        T result;
+        RuntimeException error;
+
+        Op(Write<T> write, NoteRepository.Callback<T> callback, CompletableFuture<T> future) {
+            this.write = write;
+            this.callback = callback;
+            this.future = future;
+        }
+
+        void execute(NoteDao noteDao) {
+            result = write.run(noteDao);
+        }
+
+        // Вызывается на потоке записи сразу после коммита (или отката)
+        void complete() {
+            if (future == null) return;
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        }
+
+        // Вызывается на главном потоке
+        void deliver() {
+            if (callback == null) return;
+            if (error != null) {
+                callback.onError(error);
+            } else {
+                callback.onResult(result);
+            }
+        }
+    }
+
+    private final AppDatabase db;
+    private final Handler mainHandler;
+    private final TransactionListener listener;
+    private final BlockingQueue<Op<?>> queue = new LinkedBlockingQueue<>();
+
+    BatchingWriter(@NonNull AppDatabase db, @NonNull Handler mainHandler,
+                   @NonNull TransactionListener listener) {
+        this.db = db;
+        this.mainHandler = mainHandler;
+        this.listener = listener;
+
+        Thread thread = new Thread(this::loop, "notes-db-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Ставит запись в очередь. Колбэк (если есть) получит результат на главном потоке.
+     */
+    <T> void enqueue(@NonNull Write<T> write, @Nullable NoteRepository.Callback<T> callback) {
+        queue.add(new Op<>(write, callback, null));
+    }
+
+    /**
+     * Ставит запись в очередь и возвращает future, который завершается
+     * на потоке записи после коммита (для фоновых массовых операций).
+     */
+    <T> CompletableFuture<T> submit(@NonNull Write<T> write) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        queue.add(new Op<>(write, null, future));
+        return future;
+    }
+
+    private void loop() {
+        List<Op<?>> batch = new ArrayList<>();
+        while (true) {
+            try {
+                // Ждём первую запись, затем добираем всё, что успело прийти за окно склейки
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BATCH_WINDOW_MS);
+                while (batch.size() < MAX_BATCH_SIZE) {
+                    long remaining = deadline - System.nanoTime();
+                    Op<?> next = remaining > 0
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            long start = Metrics.now();
+            writeBatch(batch);
+            Metrics.recordSince("db.write.batch.us", start);
+            Metrics.record("db.write.batch.size", batch.size());
+            for (Op<?> op : batch) {
+                op.complete();
+            }
+            List<Op<?>> done = batch;
+            mainHandler.post(() -> {
+                for (Op<?> op : done) {
+                    op.deliver();
+                }
+            });
+            batch = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Выполняет пачку в одной транзакции. Если транзакция упала, повторяет
+     * операции по одной, чтобы одна ошибочная запись не откатила остальные.
+     * Операции, которые не прошли и поодиночке, получают error.
+     */
+    private void writeBatch(List<Op<?>> batch) {
+        NoteDao noteDao = db.noteDao();
+        try {
+            db.runInTransaction(() -> {
+                for (Op<?> op : batch) {
+                    op.execute(noteDao);
+                }
+            });
+            listener.onCommitted();
+            return;
+        } catch (RuntimeException batchError) {
+            listener.onRolledBack();
+            Log.e(TAG, "Пачка из " + batch.size() + " записей не прошла, повторяем по одной", batchError);
+        }
+
+        for (Op<?> op : batch) {
+            try {
+                db.runInTransaction(() -> op.execute(noteDao));
+                listener.onCommitted();
+            } catch (RuntimeException e) {
+                listener.onRolledBack();
+                Log.e(TAG, "Запись в базу не удалась", e);
+                op.error = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.notes.data;
+
+import android.os.Handler;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.notes.data.db.NoteDao;
+import com.example.notes.metrics.Metrics;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Постепенное чтение продолжений большой заметки из note_chunks.
+ * Экран сначала показывает первый кусок (notes.content), а остальное
+ * дочитывает окнами по WINDOW_CHUNKS кусков — по мере прокрутки или целиком.
+ * Чтение идёт на пуле чтения, результат приходит на главном потоке.
+ * Методы вызываются только с главного потока.
+ */
+public final class ChunkedContentReader {
+
+    private static final String TAG = "ChunkedContentReader";
+
+    // Сколько кусков читаем за одно окно (~64 тыс. символов)
+    public static final int WINDOW_CHUNKS = 4;
+
+    private final NoteDao noteDao;
+    private final Executor executor;
+    private final Handler mainHandler;
+    private final long noteId;
+    private final int chunkCount;
+
+    private int nextIdx = 1;   // первый ещё не прочитанный кусок
+    private boolean loading;   // окно уже читается
+    private boolean cancelled;
+
+    ChunkedContentReader(@NonNull NoteDao noteDao, @NonNull Executor executor,
+                         @NonNull Handler mainHandler, long noteId, int chunkCount) {
+        this.noteDao = noteDao;
+        this.executor = executor;
+        this.mainHandler = mainHandler;
+        this.noteId = noteId;
+        this.chunkCount = chunkCount;
+    }
+
+    /**
+     * Весь ли текст уже прочитан.
+     */
+    public boolean isComplete() {
+        return nextIdx > chunkCount;
+    }
+
+    /**
+     * Читает следующее окно и отдаёт его текст для дописывания в конец.
+     * Если окно уже читается или текст прочитан целиком — ничего не делает.
+     */
+    public void readNext(@NonNull NoteRepository.Callback<String> callback) {
+        read(WINDOW_CHUNKS, callback);
+    }
+
+    /**
+     * Читает всё, что осталось (нужно перед редактированием текста).
+     */
+    public void readRemaining(@NonNull NoteRepository.Callback<String> callback) {
+        read(chunkCount - nextIdx + 1, callback);
+    }
+
+    /**
+     * Отменяет доставку ещё не пришедших окон (экран закрыт или текст заменён черновиком).
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void read(int count, NoteRepository.Callback<String> callback) {
+        if (loading || cancelled || isComplete() || count <= 0) return;
+        loading = true;
+
+        int fromIdx = nextIdx;
+        executor.execute(() -> {
+            long start = Metrics.now();
+            List<String> texts;
+            try {
+                texts = noteDao.getChunkTexts(noteId, fromIdx, count);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Не удалось прочитать продолжение заметки " + noteId, e);
+                mainHandler.post(() -> {
+                    loading = false;
+                    if (!cancelled) callback.onError(e);
+                });
+                return;
+            }
+            StringBuilder window = new StringBuilder();
+            for (String text : texts) {
+                window.append(text);
+            }
+            Metrics.recordQuery("getChunkTexts", start, texts.size(), window.length() * 2L);
+            mainHandler.post(() -> {
+                loading = false;
+                if (cancelled) return;
+                // Кусков могло оказаться меньше, если текст успели укоротить — тогда дочитано всё
+                nextIdx = texts.size() < count ? chunkCount + 1 : fromIdx + texts.size();
+                callback.onResult(window.toString());
+            });
+        });
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.notes.data;
+
+import android.content.ComponentCallbacks2;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.notes.data.db.ContentHash;
+import com.example.notes.data.db.Note;
+import com.example.notes.data.db.NoteSummary;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU-кэш заметок в памяти перед NoteDao.getById, ограниченный по байтам.
+ * Хранит заметки в том виде, в каком их отдаёт база (content — первый кусок, все колонки),
+ * и всегда отдаёт копии, чтобы правки на экране не портили кэш.
+ * Заметки со страниц списка — неполные строки (в проекции нет колонок синхронизации):
+ * get их не отдаёт, только getForDisplay — для первого кадра экрана деталей.
+ *
+ * Согласованность с базой: записи обновляют или выбрасывают свои заметки
+ * внутри транзакции, а коммит сдвигает эпоху. Чтение кладёт результат в кэш,
+ * только если за время запроса не было коммитов и заметку не трогает
+ * открытая транзакция, — иначе оно могло прочитать снимок до коммита
+ * и вернуть в кэш старую версию.
+ */
+public final class NoteCache implements BatchingWriter.TransactionListener {
+
+    // Накладные расходы на объект заметки и узел LruCache, байт
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private static final class Entry {
+        final Note note;
+        // Строка целиком из базы; false — собрана из NoteSummary
+        final boolean fullRow;
+
+        Entry(Note note, boolean fullRow) {
+            this.note = note;
+            this.fullRow = fullRow;
+        }
+    }
+
+    private final LruCache<Long, Entry> cache;
+    private final AtomicLong epoch = new AtomicLong();
+
+    // Заметки, изменённые ещё не закоммиченной транзакцией (под this)
+    private final Set<Long> pending = new HashSet<>();
+
+    /**
+     * Отдельный кэш нужен источнику страниц вне NoteRepository (нагрузочные сценарии в тестах);
+     * приложение пользуется общим — NoteRepository.noteCache().
+     */
+    public NoteCache(int maxBytes) {
+        cache = new LruCache<Long, Entry>(maxBytes) {
+            @Override
+            protected int sizeOf(@NonNull Long id, @NonNull Entry entry) {
+                return sizeInBytes(entry.note);
+            }
+        };
+    }
+
+    /**
+     * Размер по умолчанию: 1/32 кучи процесса, но не больше 8 МБ.
+     */
+    public static int defaultMaxBytes() {
+        long budget = Runtime.getRuntime().maxMemory() / 32;
+        return (int) Math.min(budget, 8L * 1024 * 1024);
+    }
+
+    // === Чтение ===
+
+    /**
+     * Копия полной строки заметки из кэша или null. Безопасно вызывать с главного потока.
+     */
+    @Nullable
+    public Note get(long id) {
+        Entry entry = cache.get(id);
+        return entry != null && entry.fullRow ? copy(entry.note) : null;
+    }
+
+    /**
+     * Копия заметки для показа или null: полная строка или заметка со страницы списка,
+     * у которой заполнены только id, title, content (весь текст), important, updatedAt
+     * и contentHash, а колонки синхронизации и createdAt — значения по умолчанию.
+     */
+    @Nullable
+    public Note getForDisplay(long id) {
+        Entry entry = cache.get(id);
+        return entry != null ? copy(entry.note) : null;
+    }
+
+    /**
+     * Текущая эпоха — запоминается перед чтением из базы для putIfUnchanged.
+     */
+    public long epoch() {
+        return epoch.get();
+    }
+
+    /**
+     * Кладёт прочитанную из базы заметку, если с начала чтения не было записей.
+     */
+    void putIfUnchanged(@Nullable Note note, long readEpoch) {
+        if (note == null) return;
+        putIfUnchanged(new Entry(copy(note), true), readEpoch);
+    }
+
+    private void putIfUnchanged(Entry entry, long readEpoch) {
+        synchronized (this) {
+            if (epoch.get() == readEpoch && !pending.contains(entry.note.id)) {
+                cache.put(entry.note.id, entry);
+            }
+        }
+    }
+
+    /**
+     * Заполняет кэш из страницы списка: короткие заметки превью содержит целиком.
+     */
+    public void putSummaries(@NonNull List<NoteSummary> page, long readEpoch) {
+        for (NoteSummary summary : page) {
+            if (!summary.complete) continue;
+            Note note = new Note();
+            note.id = summary.id;
+            note.title = summary.title;
+            note.content = summary.preview;
+            note.important = summary.important;
+            note.updatedAt = summary.updatedAt;
+            // Превью — весь текст, так что хэш точный
+            note.contentHash = ContentHash.of(summary.preview);
+            putIfUnchanged(new Entry(note, false), readEpoch);
+        }
+    }
+
+    // === Запись (вызывается на потоке записи, внутри транзакции) ===
+
+    /**
+     * Запоминает новую версию заметки (write-through).
+     */
+    synchronized void put(@NonNull Note note) {
+        Note entry = copy(note);
+        pending.add(entry.id);
+        cache.put(entry.id, new Entry(entry, true));
+    }
+
+    synchronized void invalidate(long id) {
+        pending.add(id);
+        cache.remove(id);
+    }
+
+    @Override
+    public synchronized void onCommitted() {
+        pending.clear();
+        epoch.incrementAndGet();
+    }
+
+    @Override
+    public synchronized void onRolledBack() {
+        // Write-through мог записать то, чего в базе нет, — проще сбросить всё
+        pending.clear();
+        epoch.incrementAndGet();
+        cache.evictAll();
+    }
+
+    // === Память и статистика ===
+
+    /**
+     * Ужимает кэш по сигналу системы (Application.onTrimMemory).
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            cache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+    }
+
+    public int hitCount() {
+        return cache.hitCount();
+    }
+
+    public int missCount() {
+        return cache.missCount();
+    }
+
+    public int sizeInBytes() {
+        return cache.size();
+    }
+
+    public int maxSizeInBytes() {
+        return cache.maxSize();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "NoteCache[hits=" + hitCount() + ", misses=" + missCount()
+                + ", size=" + sizeInBytes() + "/" + maxSizeInBytes() + " B]";
+    }
+
+    private static int sizeInBytes(Note note) {
+        int chars = (note.title != null ? note.title.length() : 0)
+                + (note.content != null ? note.content.length() : 0)
+                + (note.syncId != null ? note.syncId.length() : 0);
+        return ENTRY_OVERHEAD_BYTES + chars * 2;
+    }
+
+    private static Note copy(Note note) {
+        Note copy = new Note();
+        copy.id = note.id;
+        copy.title = note.title;
+        copy.content = note.content;
+        copy.important = note.important;
+        copy.chunkCount = note.chunkCount;
+        copy.createdAt = note.createdAt;
+        copy.updatedAt = note.updatedAt;
+        copy.deletedAt = note.deletedAt;
+        copy.contentHash = note.contentHash;
+        copy.syncId = note.syncId;
+        copy.version = note.version;
+        copy.syncedVersion = note.syncedVersion;
+        copy.syncedHash = note.syncedHash;
+        copy.syncDirty = note.syncDirty;
+        return copy;
+    }
+}
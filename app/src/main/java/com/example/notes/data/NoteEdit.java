@@ -0,0 +1,29 @@
+package com.example.notes.data;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Набор изменённых полей заметки из редактора.
+ * null означает «поле не менялось» — такая колонка в UPDATE не попадает.
+ */
+public final class NoteEdit {
+
+    public final long noteId;
+
+    @Nullable
+    public String title;
+
+    @Nullable
+    public String content;
+
+    @Nullable
+    public Boolean important;
+
+    public NoteEdit(long noteId) {
+        this.noteId = noteId;
+    }
+
+    public boolean isEmpty() {
+        return title == null && content == null && important == null;
+    }
+}
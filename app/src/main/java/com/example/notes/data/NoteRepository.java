@@ -0,0 +1,517 @@
+package com.example.notes.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.notes.data.db.AppDatabase;
+import com.example.notes.data.db.Note;
+import com.example.notes.data.db.NoteDao;
+import com.example.notes.data.db.NoteDraft;
+import com.example.notes.data.db.NoteHistory;
+import com.example.notes.data.db.NoteRevisionInfo;
+import com.example.notes.data.db.NoteSearchResult;
+import com.example.notes.data.io.NoteArchive;
+import com.example.notes.data.paging.FirstPagePrefetch;
+import com.example.notes.data.paging.NoteKeysetPagingSource;
+import com.example.notes.data.paging.NoteSort;
+import com.example.notes.data.search.NoteSearch;
+import com.example.notes.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Единая точка доступа к заметкам поверх NoteDao.
+ * Чтения идут через ограниченный пул потоков, записи — через один
+ * поток-писатель, который склеивает близкие по времени записи в одну транзакцию.
+ * Перед getById стоит LRU-кэш заметок: записи обновляют его внутри своих транзакций.
+ * Все колбэки вызываются на главном потоке. Если чтение или запись не удались,
+ * репозиторий показывает сообщение и вызывает onError вместо onResult.
+ */
+public class NoteRepository {
+
+    private static final String TAG = "NoteRepository";
+
+    private static final String READ_FAILED = "Не удалось прочитать заметку";
+    private static final String WRITE_FAILED = "Не удалось сохранить изменения";
+
+    // Размер пула чтения: WAL позволяет параллельные чтения, но больше пары потоков не нужно
+    private static final int READ_THREADS = 2;
+
+    // Сколько id передаём в один IN (...): лимит параметров SQLite — 999
+    private static final int IDS_PER_STATEMENT = 500;
+
+    /**
+     * Результат асинхронной операции (вызывается на главном потоке).
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+
+        /**
+         * Операция не удалась (вызывается на главном потоке вместо onResult).
+         * Сообщение пользователю репозиторий уже показал — экран здесь только
+         * возвращается в рабочее состояние.
+         */
+        default void onError(@NonNull Exception error) {
+        }
+    }
+
+    /**
+     * Ход массовой операции (импорт/экспорт). Все методы вызываются на главном потоке.
+     */
+    public interface BulkListener {
+        void onProgress(int processed);
+
+        void onComplete(int total);
+
+        void onError(@NonNull Exception error);
+    }
+
+    private static NoteRepository instance;
+
+    private final Context appContext;
+    private final AppDatabase db;
+    private final ExecutorService readExecutor;
+    private final BatchingWriter writer;
+    private final NoteCache noteCache = new NoteCache(NoteCache.defaultMaxBytes());
+    private final FirstPagePrefetch firstPagePrefetch = new FirstPagePrefetch(noteCache::epoch);
+    private final ExecutorService bulkExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Контрольная точка инкрементальной выгрузки: seq последнего выгруженного изменения
+    private static final String BACKUP_PREFS = "note_backup";
+    private static final String KEY_JOURNAL_CHECKPOINT = "journal_checkpoint";
+    private final SharedPreferences backupPrefs;
+
+    private NoteRepository(Context context) {
+        appContext = context;
+        db = AppDatabase.getInstance(context);
+        backupPrefs = context.getSharedPreferences(BACKUP_PREFS, Context.MODE_PRIVATE);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        readExecutor = Executors.newFixedThreadPool(READ_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "notes-db-read-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer = new BatchingWriter(db, mainHandler, noteCache);
+
+        // Долгие массовые операции идут отдельно, чтобы не занимать пул чтения
+        bulkExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notes-bulk");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static synchronized NoteRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new NoteRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Пул потоков чтения (для источников страниц и других фоновых чтений).
+     */
+    @NonNull
+    public Executor readExecutor() {
+        return readExecutor;
+    }
+
+    /**
+     * Новый источник страниц для списка заметок — на каждый invalidate() нужен свежий.
+     */
+    @NonNull
+    public NoteKeysetPagingSource createPagingSource(@NonNull NoteSort sort) {
+        return new NoteKeysetPagingSource(db.noteDao(), sort, db.getInvalidationTracker(),
+                readExecutor, noteCache, firstPagePrefetch);
+    }
+
+    /**
+     * Открывает базу и читает первую страницу списка в фоне (вызывается при старте процесса).
+     */
+    public void prefetchFirstPage(@NonNull NoteSort sort) {
+        firstPagePrefetch.start(db.noteDao(), sort, readExecutor);
+    }
+
+    /**
+     * Кэш заметок — для счётчиков попаданий и реакции на нехватку памяти.
+     */
+    @NonNull
+    public NoteCache noteCache() {
+        return noteCache;
+    }
+
+    // === Чтение ===
+
+    /**
+     * Заметка из кэша без обращения к базе (копия) или null — для отрисовки в первом кадре.
+     * Может быть неполной строкой со страницы списка (см. NoteCache.getForDisplay):
+     * надёжны заголовок, текст, флаг и время правки.
+     */
+    @Nullable
+    public Note getCached(long id) {
+        return noteCache.getForDisplay(id);
+    }
+
+    public void getById(long id, @NonNull Callback<Note> callback) {
+        Note cached = noteCache.get(id);
+        if (cached != null) {
+            mainHandler.post(() -> callback.onResult(cached));
+            return;
+        }
+        read(() -> {
+            long cacheEpoch = noteCache.epoch();
+            long start = Metrics.now();
+            Note note = db.noteDao().getById(id);
+            Metrics.recordQuery("getById", start, note != null ? 1 : 0,
+                    note != null ? Metrics.textBytes(note.title, note.content) : 0);
+            noteCache.putIfUnchanged(note, cacheEpoch);
+            return note;
+        }, callback);
+    }
+
+    public void getDraft(long noteId, @NonNull Callback<NoteDraft> callback) {
+        read(() -> {
+            long start = Metrics.now();
+            NoteDraft draft = db.noteDao().getDraft(noteId);
+            Metrics.recordQuery("getDraft", start, draft != null ? 1 : 0,
+                    draft != null ? Metrics.textBytes(draft.title, draft.content) : 0);
+            return draft;
+        }, callback);
+    }
+
+    public void search(@Nullable String query, @NonNull Callback<List<NoteSearchResult>> callback) {
+        search(query, () -> false, callback);
+    }
+
+    /**
+     * Поиск, который можно бросить: cancelled проверяется до начала, между этапами поиска
+     * и перед вызовом колбэка. Устаревший поиск не занимает пул чтения
+     * и не доставляет результат — колбэк не вызывается вовсе.
+     */
+    public void search(@Nullable String query, @NonNull BooleanSupplier cancelled,
+                       @NonNull Callback<List<NoteSearchResult>> callback) {
+        readExecutor.execute(() -> {
+            if (cancelled.getAsBoolean()) {
+                Metrics.increment("search.cancelled");
+                return;
+            }
+            long start = Metrics.now();
+            List<NoteSearchResult> results;
+            try {
+                results = NoteSearch.search(db.noteDao(), query, cancelled);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Поиск не удался", e);
+                if (!cancelled.getAsBoolean()) {
+                    mainHandler.post(() -> reported("Поиск не удался", callback).onError(e));
+                }
+                return;
+            }
+            if (cancelled.getAsBoolean()) {
+                Metrics.increment("search.cancelled");
+                return;
+            }
+            long bytes = 0;
+            for (NoteSearchResult result : results) {
+                bytes += Metrics.textBytes(result.title, result.snippet);
+            }
+            Metrics.recordQuery("search", start, results.size(), bytes);
+            mainHandler.post(() -> {
+                if (!cancelled.getAsBoolean()) callback.onResult(results);
+            });
+        });
+    }
+
+    /**
+     * Читатель продолжений текста большой заметки (note.content — только первый кусок).
+     */
+    @NonNull
+    public ChunkedContentReader openContentReader(@NonNull Note note) {
+        return new ChunkedContentReader(db.noteDao(), readExecutor, mainHandler, note.id, note.chunkCount);
+    }
+
+    private <T> void read(Callable<T> query, Callback<T> callback) {
+        readExecutor.execute(() -> {
+            T result;
+            try {
+                result = query.call();
+            } catch (Exception e) {
+                Log.e(TAG, "Чтение из базы не удалось", e);
+                mainHandler.post(() -> reported(READ_FAILED, callback).onError(e));
+                return;
+            }
+            mainHandler.post(() -> callback.onResult(result));
+        });
+    }
+
+    // === История правок ===
+
+    /**
+     * Версии заметки от новых к старым (без текста).
+     */
+    public void getHistory(long noteId, @NonNull Callback<List<NoteRevisionInfo>> callback) {
+        read(() -> db.noteDao().getRevisionInfos(noteId), callback);
+    }
+
+    /**
+     * Полный текст версии rev (восстанавливается от ближайшего снимка), null — версии нет.
+     */
+    public void getRevisionText(long noteId, int rev, @NonNull Callback<String> callback) {
+        read(() -> NoteHistory.load(db.noteDao(), noteId, rev), callback);
+    }
+
+    // === Запись (через поток-писатель, пачками) ===
+
+    public void insert(@NonNull Note note, @Nullable Callback<Long> callback) {
+        writer.enqueue(noteDao -> noteDao.insertNote(note), reported(WRITE_FAILED, callback));
+    }
+
+    /**
+     * Записывает только изменённые поля заметки — смена флага не переписывает
+     * многомегабайтное тело. Новый текст заново режется на куски.
+     * В той же транзакции удаляет черновик автосохранения и пишет версию в историю правок
+     * (старый текст читается целиком, только если менялся текст — дельта строится от него).
+     */
+    public void applyEdit(@NonNull NoteEdit edit, @Nullable Callback<Void> callback) {
+        writer.enqueue(noteDao -> {
+            noteDao.applyEdit(edit.noteId, edit.title, edit.content, edit.important, System.currentTimeMillis());
+            refreshCached(noteDao, edit.noteId);
+            return null;
+        }, reported(WRITE_FAILED, callback));
+    }
+
+    /**
+     * Сохраняет черновик несохранённых правок (перезаписывает предыдущий).
+     */
+    public void saveDraft(@NonNull NoteEdit edit) {
+        NoteDraft draft = new NoteDraft();
+        draft.noteId = edit.noteId;
+        draft.title = edit.title;
+        draft.content = edit.content;
+        draft.important = edit.important;
+        draft.updatedAt = System.currentTimeMillis();
+        writer.enqueue(noteDao -> {
+            noteDao.upsertDraft(draft);
+            return null;
+        }, reported("Не удалось сохранить черновик", null));
+    }
+
+    public void discardDraft(long noteId) {
+        writer.enqueue(noteDao -> {
+            noteDao.deleteDraft(noteId);
+            return null;
+        }, null);
+    }
+
+    // === Удаление с возможностью отмены ===
+
+    /**
+     * Помечает заметки удалёнными одним UPDATE на порцию id в одной транзакции —
+     * список обновляется один раз, сколько бы заметок ни выбрали.
+     * Строки стираются позже (purgeDeleted), до этого удаление отменяет restore.
+     */
+    public void softDelete(@NonNull Collection<Long> ids, @Nullable Callback<Void> callback) {
+        if (ids.isEmpty()) {
+            if (callback != null) mainHandler.post(() -> callback.onResult(null));
+            return;
+        }
+        List<Long> copy = new ArrayList<>(ids);
+        long deletedAt = System.currentTimeMillis();
+        writer.enqueue(noteDao -> {
+            for (int from = 0; from < copy.size(); from += IDS_PER_STATEMENT) {
+                noteDao.softDelete(copy.subList(from, Math.min(copy.size(), from + IDS_PER_STATEMENT)), deletedAt);
+            }
+            for (long id : copy) {
+                noteCache.invalidate(id);
+            }
+            return null;
+        }, reported("Не удалось удалить заметки", callback));
+    }
+
+    /**
+     * Возвращает мягко удалённые заметки (кнопка «Отменить»).
+     */
+    public void restore(@NonNull Collection<Long> ids, @Nullable Callback<Void> callback) {
+        if (ids.isEmpty()) {
+            if (callback != null) mainHandler.post(() -> callback.onResult(null));
+            return;
+        }
+        List<Long> copy = new ArrayList<>(ids);
+        writer.enqueue(noteDao -> {
+            for (int from = 0; from < copy.size(); from += IDS_PER_STATEMENT) {
+                noteDao.restore(copy.subList(from, Math.min(copy.size(), from + IDS_PER_STATEMENT)));
+            }
+            return null;
+        }, reported("Не удалось вернуть заметки", callback));
+    }
+
+    /**
+     * Стирает надгробия старше NoteDao.TOMBSTONE_TTL_MS порциями по NoteDao.PURGE_BATCH_SIZE:
+     * каждая порция — отдельная короткая операция писателя, следующая ставится в очередь
+     * после предыдущей, так что правки пользователя не ждут всю очистку.
+     */
+    public void purgeDeleted() {
+        purgeDeletedBatch(System.currentTimeMillis() - NoteDao.TOMBSTONE_TTL_MS);
+    }
+
+    private void purgeDeletedBatch(long deletedBefore) {
+        writer.enqueue(noteDao -> noteDao.purgeDeleted(deletedBefore, NoteDao.PURGE_BATCH_SIZE), purged -> {
+            Metrics.add("db.purge.rows", purged);
+            if (purged == NoteDao.PURGE_BATCH_SIZE) {
+                purgeDeletedBatch(deletedBefore);
+            }
+        });
+    }
+
+    /**
+     * Write-through после правки: заметка только что открывалась, поэтому
+     * кладём в кэш её новую версию (чтение по ключу внутри той же транзакции).
+     */
+    private void refreshCached(NoteDao noteDao, long id) {
+        Note updated = noteDao.getById(id);
+        if (updated != null) {
+            noteCache.put(updated);
+        } else {
+            noteCache.invalidate(id);
+        }
+    }
+
+    // === Синхронизация ===
+
+    /**
+     * Заметки изменены в базе в обход писателя (синхронизация уже закоммитила их).
+     * Выбрасываем их из кэша операцией писателя: её коммит сдвигает эпоху,
+     * и чтение, начатое до синхронизации, не вернёт в кэш старую версию.
+     */
+    public void onExternalChanges(@NonNull Collection<Long> ids) {
+        if (ids.isEmpty()) return;
+        List<Long> copy = new ArrayList<>(ids);
+        writer.enqueue(noteDao -> {
+            for (long id : copy) {
+                noteCache.invalidate(id);
+            }
+            return null;
+        }, null);
+    }
+
+    // === Импорт и экспорт ===
+
+    /**
+     * Выгружает все заметки в поток (NDJSON) и закрывает его.
+     */
+    public void exportNotes(@NonNull OutputStream out, @NonNull BulkListener listener) {
+        bulkExecutor.execute(() -> {
+            try (OutputStream stream = out) {
+                int total = NoteArchive.exportTo(db.noteDao(), stream, progress(listener));
+                mainHandler.post(() -> listener.onComplete(total));
+            } catch (IOException | RuntimeException e) {
+                mainHandler.post(() -> listener.onError(e));
+            }
+        });
+    }
+
+    /**
+     * Выгружает в поток (NDJSON) только заметки, изменённые или удалённые после
+     * прошлой инкрементальной выгрузки, и закрывает его. Контрольная точка сдвигается,
+     * только если файл записан и закрыт без ошибок; выгруженные удаления затем
+     * убираются из журнала. Прогресс и итог — в числе изменений.
+     */
+    public void exportChanges(@NonNull OutputStream out, @NonNull BulkListener listener) {
+        bulkExecutor.execute(() -> {
+            long checkpoint = backupPrefs.getLong(KEY_JOURNAL_CHECKPOINT, 0);
+            long[] exported = new long[1];
+            long newCheckpoint;
+            try (OutputStream stream = out) {
+                newCheckpoint = NoteArchive.exportChangesTo(db.noteDao(), stream, checkpoint, processed -> {
+                    exported[0] = processed;
+                    mainHandler.post(() -> listener.onProgress(processed));
+                });
+            } catch (IOException | RuntimeException e) {
+                mainHandler.post(() -> listener.onError(e));
+                return;
+            }
+            backupPrefs.edit().putLong(KEY_JOURNAL_CHECKPOINT, newCheckpoint).apply();
+            writer.enqueue(noteDao -> noteDao.compactChanges(newCheckpoint), null);
+            int total = (int) exported[0];
+            mainHandler.post(() -> listener.onComplete(total));
+        });
+    }
+
+    /**
+     * Загружает заметки из потока (NDJSON) и закрывает его.
+     * Каждая порция вставляется одной транзакцией через поток записи;
+     * пока пишется одна порция, читается следующая, но не больше одной впрок.
+     */
+    public void importNotes(@NonNull InputStream in, @NonNull BulkListener listener) {
+        bulkExecutor.execute(() -> {
+            CompletableFuture<?>[] pending = new CompletableFuture<?>[1];
+            try (InputStream stream = in) {
+                int total = NoteArchive.importFrom(stream, chunk -> {
+                    awaitWrite(pending[0]);
+                    pending[0] = writer.submit(noteDao -> {
+                        noteDao.insertNotes(chunk);
+                        return null;
+                    });
+                }, progress(listener));
+                awaitWrite(pending[0]);
+                mainHandler.post(() -> listener.onComplete(total));
+            } catch (IOException | RuntimeException e) {
+                mainHandler.post(() -> listener.onError(e));
+            }
+        });
+    }
+
+    private NoteArchive.Progress progress(BulkListener listener) {
+        return processed -> mainHandler.post(() -> listener.onProgress(processed));
+    }
+
+    private static void awaitWrite(@Nullable CompletableFuture<?> write) throws IOException {
+        if (write == null) return;
+        try {
+            write.join();
+        } catch (CompletionException e) {
+            throw new IOException("Не удалось записать порцию заметок", e.getCause());
+        }
+    }
+
+    /**
+     * Колбэк, который при ошибке сначала показывает пользователю failure,
+     * а затем передаёт ошибку экрану (если он ждёт результат).
+     */
+    @NonNull
+    private <T> Callback<T> reported(@NonNull String failure, @Nullable Callback<T> callback) {
+        return new Callback<T>() {
+            @Override
+            public void onResult(T result) {
+                if (callback != null) callback.onResult(result);
+            }
+
+            @Override
+            public void onError(@NonNull Exception error) {
+                Toast.makeText(appContext, failure, Toast.LENGTH_LONG).show();
+                if (callback != null) callback.onError(error);
+            }
+        };
+    }
+}
@@ -1,10 +1,22 @@
 package com.example.notes.data.db;
 import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
-@Database(entities = {Note.class}, version = 1)
+import com.example.notes.metrics.Metrics;
+
+import java.util.List;
+import java.util.Locale;
+
+@Database(
+        entities = {Note.class, NoteFts.class, NoteDraft.class, NoteChunk.class, NoteChange.class,
+                NoteRevision.class, TitleTrigram.class, TitleTrigramCount.class, NoteBodyFts.class},
+        version = 12,
+        exportSchema = true)
 public abstract class AppDatabase extends RoomDatabase {
 
     private static AppDatabase instance;
@@ -13,12 +25,85 @@ public abstract class AppDatabase extends RoomDatabase {
 
     public static synchronized AppDatabase getInstance(Context context) {
         if (instance == null) {
-            instance = Room.databaseBuilder(
+            RoomDatabase.Builder<AppDatabase> builder = Room.databaseBuilder(
                     context.getApplicationContext(),
                     AppDatabase.class,
                     "notes_db"
-            ).build();
+            ).addMigrations(Migrations.ALL)
+                    .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING);
+            configure(builder, true);
+
+            // Перехватчик выражений Room копирует аргументы каждого запроса — только в отладочной сборке
+            boolean debuggable = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+            if (debuggable) {
+                builder.setQueryCallback(AppDatabase::countStatement, Runnable::run);
+            }
+            instance = builder.build();
         }
         return instance;
     }
+
+    /**
+     * Пустая база в памяти с теми же триггерами и настройками соединения, что у getInstance,
+     * но без приветственной заметки — для тестов и бенчмарков. Запросы разрешены на любом потоке.
+     */
+    @NonNull
+    public static AppDatabase inMemory(@NonNull Context context) {
+        RoomDatabase.Builder<AppDatabase> builder = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries();
+        return configure(builder, false).build();
+    }
+
+    // Колбэки, которые ставят триггеры (их нет в схеме Room) и настраивают соединение
+    private static RoomDatabase.Builder<AppDatabase> configure(@NonNull RoomDatabase.Builder<AppDatabase> builder,
+                                                               boolean seedDemoNote) {
+        return builder.addCallback(new RoomDatabase.Callback() {
+            @Override
+            public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                // Журнал изменений ведётся с первой заметки
+                ChangeJournal.install(db);
+                TitleTrigramIndex.install(db);
+                if (seedDemoNote) {
+                    // Новая база — сразу с приветственной заметкой, без проверки и перечитывания
+                    seedDemoNote(db);
+                    // Заметка вставлена прямым SQL, мимо NoteDao.indexTitle
+                    TitleTrigramIndex.rebuild(db);
+                }
+            }
+
+            @Override
+            public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                DatabaseTuning.apply(db);
+                // FTS переиндексируется только при изменении заголовка или текста
+                FtsTriggers.install(db);
+                ChangeJournal.install(db);
+                TitleTrigramIndex.install(db);
+            }
+        });
+    }
+
+    /**
+     * Счётчик выражений, которые Room отправил в SQLite, по первому слову ("sql.select", "sql.insert"...).
+     * Колбэк вызывается на потоке запроса, поэтому здесь только инкремент.
+     */
+    private static void countStatement(@NonNull String sql, @NonNull List<?> args) {
+        int end = sql.indexOf(' ');
+        String verb = (end > 0 ? sql.substring(0, end) : sql).toLowerCase(Locale.ROOT);
+        Metrics.increment("sql." + verb);
+    }
+
+    /**
+     * Приветственная заметка для только что созданной базы.
+     * Вставляется прямо в транзакции создания схемы: FTS-триггеры Room к этому моменту уже есть.
+     */
+    private static void seedDemoNote(SupportSQLiteDatabase db) {
+        long now = System.currentTimeMillis();
+        db.execSQL("INSERT INTO notes (title, content, important, created_at, updated_at, sync_id) "
+                + "VALUES (?, ?, 1, ?, ?, " + Migrations.RANDOM_UUID_SQL + ")", new Object[]{
+                "Добро пожаловать!",
+                "Это пример заметки.\nНажми ➕ чтобы создать свою.",
+                now,
+                now
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.example.notes.data.db;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Триггеры журнала изменений note_changes.
+ * Любая вставка, правка и удаление заметки — через NoteDao или прямым SQL —
+ * записывается в журнал тем же выражением, то есть в той же транзакции.
+ * Правка следит только за колонками, которые попадают в выгрузку:
+ * служебные колонки можно менять, не засоряя журнал.
+ * Мягкое удаление журналируется как OP_DELETE, восстановление — снова как OP_UPSERT;
+ * окончательная очистка надгробия новой записи не даёт.
+ * Здесь же счётчик версий строк для синхронизации: правка синхронизируемых колонок
+ * увеличивает notes.version, если сама правка не выставила версию явно,
+ * а смена заголовка и флага отмечается в sync_dirty — отправка берёт только изменённые поля.
+ * Выражения идемпотентны, install вызывается при создании и каждом открытии базы.
+ */
+public final class ChangeJournal {
+
+    private ChangeJournal() {
+    }
+
+    public static void install(@NonNull SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS note_changes_AFTER_INSERT "
+                + "AFTER INSERT ON `notes` BEGIN "
+                + "INSERT OR REPLACE INTO `note_changes`(`note_id`, `op`, `content_hash`, `changed_at`) "
+                + "VALUES (NEW.`id`, '" + NoteChange.OP_UPSERT + "', NEW.`content_hash`, NEW.`updated_at`); END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS note_changes_AFTER_UPDATE "
+                + "AFTER UPDATE OF `title`, `content`, `important`, `updated_at`, `deleted_at` ON `notes` BEGIN "
+                + "INSERT OR REPLACE INTO `note_changes`(`note_id`, `op`, `content_hash`, `changed_at`) "
+                + "VALUES (NEW.`id`, "
+                + "CASE WHEN NEW.`deleted_at` = 0 THEN '" + NoteChange.OP_UPSERT + "' "
+                + "ELSE '" + NoteChange.OP_DELETE + "' END, NEW.`content_hash`, "
+                + "CASE WHEN NEW.`deleted_at` = 0 THEN NEW.`updated_at` ELSE NEW.`deleted_at` END); END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS note_changes_AFTER_DELETE "
+                + "AFTER DELETE ON `notes` WHEN OLD.`deleted_at` = 0 BEGIN "
+                + "INSERT OR REPLACE INTO `note_changes`(`note_id`, `op`, `content_hash`, `changed_at`) "
+                + "VALUES (OLD.`id`, '" + NoteChange.OP_DELETE + "', 0, "
+                + "CAST(strftime('%s', 'now') AS INTEGER) * 1000); END");
+
+        // version и synced_version в списке колонок нет — своё обновление триггер не перезапускает
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS notes_version_AFTER_UPDATE "
+                + "AFTER UPDATE OF `title`, `content`, `important`, `deleted_at` ON `notes` "
+                + "WHEN NEW.`version` = OLD.`version` BEGIN "
+                + "UPDATE `notes` SET `version` = OLD.`version` + 1 WHERE `id` = NEW.`id`; END");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS notes_dirty_title_AFTER_UPDATE "
+                + "AFTER UPDATE OF `title` ON `notes` WHEN NEW.`title` IS NOT OLD.`title` BEGIN "
+                + "UPDATE `notes` SET `sync_dirty` = `sync_dirty` | " + Note.DIRTY_TITLE
+                + " WHERE `id` = NEW.`id`; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS notes_dirty_important_AFTER_UPDATE "
+                + "AFTER UPDATE OF `important` ON `notes` WHEN NEW.`important` IS NOT OLD.`important` BEGIN "
+                + "UPDATE `notes` SET `sync_dirty` = `sync_dirty` | " + Note.DIRTY_IMPORTANT
+                + " WHERE `id` = NEW.`id`; END");
+    }
+}
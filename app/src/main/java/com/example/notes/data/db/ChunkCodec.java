@@ -0,0 +1,99 @@
+package com.example.notes.data.db;
+
+import androidx.annotation.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Формат хранения продолжений текста в note_chunks.
+ * Кусок пишется как BLOB: либо UTF-8 как есть, либо сжатый deflate с заголовком
+ * [0xFF, FORMAT_DEFLATE, длина UTF-8 в 4 байтах big-endian, данные deflate без обёртки].
+ * Байт 0xFF не встречается в UTF-8, поэтому заголовок не спутать с текстом:
+ * старые строки (TEXT, записанные до сжатия) читаются как есть и сжимаются
+ * при следующей перезаписи текста заметки.
+ * Первый кусок (notes.content) не сжимается — по нему строятся превью и FTS.
+ */
+final class ChunkCodec {
+
+    private static final byte MARKER = (byte) 0xFF;
+    private static final byte FORMAT_DEFLATE = 1;
+    private static final int HEADER_SIZE = 6;
+
+    // Сжатие оставляем, только если оно экономит хотя бы восьмую часть
+    private static final int MIN_SAVING_SHIFT = 3;
+
+    private ChunkCodec() {
+    }
+
+    /**
+     * Байты для записи в note_chunks: сжатые, если это выгодно, иначе UTF-8.
+     */
+    @NonNull
+    static byte[] encode(@NonNull String text) {
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        int limit = raw.length - (raw.length >> MIN_SAVING_SHIFT);
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            // Буфер ровно под выгодный размер: не влезло — храним без сжатия
+            byte[] packed = new byte[HEADER_SIZE + limit];
+            int size = 0;
+            while (!deflater.finished() && size < limit) {
+                size += deflater.deflate(packed, HEADER_SIZE + size, limit - size);
+            }
+            if (!deflater.finished()) return raw;
+
+            packed[0] = MARKER;
+            packed[1] = FORMAT_DEFLATE;
+            packed[2] = (byte) (raw.length >>> 24);
+            packed[3] = (byte) (raw.length >>> 16);
+            packed[4] = (byte) (raw.length >>> 8);
+            packed[5] = (byte) raw.length;
+            byte[] result = new byte[HEADER_SIZE + size];
+            System.arraycopy(packed, 0, result, 0, result.length);
+            return result;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Текст куска из байтов note_chunks в любом из форматов.
+     */
+    @NonNull
+    static String decode(@NonNull byte[] data) {
+        if (data.length < HEADER_SIZE || data[0] != MARKER) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+        if (data[1] != FORMAT_DEFLATE) {
+            throw new IllegalStateException("Неизвестный формат куска заметки: " + data[1]);
+        }
+
+        int rawLength = (data[2] & 0xFF) << 24 | (data[3] & 0xFF) << 16
+                | (data[4] & 0xFF) << 8 | (data[5] & 0xFF);
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data, HEADER_SIZE, data.length - HEADER_SIZE);
+            int size = 0;
+            while (size < rawLength) {
+                int n = inflater.inflate(raw, size, rawLength - size);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) break;
+                size += n;
+            }
+            if (size != rawLength) {
+                throw new IllegalStateException("Кусок заметки повреждён: " + size + " из " + rawLength + " байт");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Кусок заметки повреждён", e);
+        } finally {
+            inflater.end();
+        }
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+}
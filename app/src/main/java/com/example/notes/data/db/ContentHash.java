@@ -0,0 +1,36 @@
+package com.example.notes.data.db;
+
+import androidx.annotation.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Хэш полного текста заметки: первые 8 байт SHA-256 от UTF-8.
+ * Хранится в notes.content_hash и попадает в журнал изменений — по нему
+ * инкрементальная выгрузка и приёмник проверяют, изменилось ли тело заметки.
+ * 0 зарезервирован за «не посчитан» (заметки, записанные до появления хэша).
+ */
+public final class ContentHash {
+
+    public static final long UNKNOWN = 0;
+
+    private ContentHash() {
+    }
+
+    public static long of(@Nullable String content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] hash = digest.digest((content != null ? content : "").getBytes(StandardCharsets.UTF_8));
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | (hash[i] & 0xFF);
+        }
+        return value == UNKNOWN ? 1 : value;
+    }
+}
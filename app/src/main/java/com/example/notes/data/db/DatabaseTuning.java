@@ -0,0 +1,58 @@
+package com.example.notes.data.db;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Профиль настройки SQLite для notes_db, применяется при каждом открытии базы.
+ * Журнал WAL включается в билдере Room; здесь — параметры соединения:
+ * кэш страниц под наши размеры заметок (тела до 16K символов в строке,
+ * остальное в note_chunks), кэш скомпилированных выражений и лимит WAL-файла.
+ * PRAGMA cache_size действует на основное соединение, через которое идут все записи.
+ */
+public final class DatabaseTuning {
+
+    // Кэш страниц: 4 МБ (отрицательное значение — в КиБ, а не в страницах)
+    static final int PAGE_CACHE_KIB = 4 * 1024;
+
+    // Кэш подготовленных выражений на соединение (у Android по умолчанию 25, максимум 100)
+    static final int SQL_STATEMENT_CACHE_SIZE = 64;
+
+    // Сколько байт WAL-файла оставлять после checkpoint
+    static final long WAL_SIZE_LIMIT_BYTES = 4L * 1024 * 1024;
+
+    private DatabaseTuning() {
+    }
+
+    public static void apply(@NonNull SupportSQLiteDatabase db) {
+        db.setMaxSqlCacheSize(SQL_STATEMENT_CACHE_SIZE);
+        pragma(db, "PRAGMA cache_size = -" + PAGE_CACHE_KIB);
+        // В режиме WAL synchronous=NORMAL не теряет целостность, только последнюю транзакцию при сбое питания
+        pragma(db, "PRAGMA synchronous = NORMAL");
+        pragma(db, "PRAGMA temp_store = MEMORY");
+        pragma(db, "PRAGMA journal_size_limit = " + WAL_SIZE_LIMIT_BYTES);
+    }
+
+    /**
+     * Выполняет PRAGMA через query: часть из них возвращает строку,
+     * и execSQL на них падает.
+     */
+    public static void pragma(@NonNull SupportSQLiteDatabase db, @NonNull String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            while (cursor.moveToNext()) {
+                // результат не нужен, но курсор надо дочитать, чтобы выражение выполнилось
+            }
+        }
+    }
+
+    /**
+     * Читает числовой PRAGMA (page_count, freelist_count, auto_vacuum...).
+     */
+    public static long pragmaLong(@NonNull SupportSQLiteDatabase db, @NonNull String sql) {
+        try (Cursor cursor = db.query(sql)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+}
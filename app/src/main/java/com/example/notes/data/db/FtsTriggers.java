@@ -0,0 +1,55 @@
+package com.example.notes.data.db;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Триггеры синхронизации notes_fts с таблицей notes.
+ * Room создаёт UPDATE-триггеры, которые переиндексируют заметку при изменении любой колонки,
+ * то есть даже смена флага "Важно" заново токенизирует всё тело заметки.
+ * Здесь они заменяются на триггеры UPDATE OF title, content — индекс трогается,
+ * только когда меняется индексируемый текст.
+ * Строку notes_body_fts (полный текст большой заметки) пишет NoteDao, а стирает
+ * триггер на удаление заметки — так её не забудут ни очистка надгробий, ни deleteById.
+ * Room сносит и пересоздаёт свои FTS-триггеры вокруг миграций, поэтому набор
+ * приводится к нужному виду при каждом открытии базы. Все выражения идемпотентны:
+ * если триггеры уже в нужном состоянии, схема не меняется.
+ */
+public final class FtsTriggers {
+
+    private FtsTriggers() {
+    }
+
+    public static void install(@NonNull SupportSQLiteDatabase db) {
+        db.beginTransaction();
+        try {
+            // Вставка и удаление — как у Room
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_BEFORE_DELETE "
+                    + "BEFORE DELETE ON `notes` BEGIN "
+                    + "DELETE FROM `notes_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_AFTER_INSERT "
+                    + "AFTER INSERT ON `notes` BEGIN "
+                    + "INSERT INTO `notes_fts`(`docid`, `title`, `content`) "
+                    + "VALUES (NEW.`rowid`, NEW.`title`, NEW.`content`); END");
+
+            // Обновление — только при изменении индексируемых колонок
+            db.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_notes_fts_BEFORE_UPDATE");
+            db.execSQL("DROP TRIGGER IF EXISTS room_fts_content_sync_notes_fts_AFTER_UPDATE");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS notes_fts_sync_BEFORE_UPDATE "
+                    + "BEFORE UPDATE OF `title`, `content` ON `notes` BEGIN "
+                    + "DELETE FROM `notes_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS notes_fts_sync_AFTER_UPDATE "
+                    + "AFTER UPDATE OF `title`, `content` ON `notes` BEGIN "
+                    + "INSERT INTO `notes_fts`(`docid`, `title`, `content`) "
+                    + "VALUES (NEW.`rowid`, NEW.`title`, NEW.`content`); END");
+
+            // Полный текст больших заметок
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS notes_body_fts_AFTER_DELETE "
+                    + "AFTER DELETE ON `notes` BEGIN "
+                    + "DELETE FROM `notes_body_fts` WHERE `docid`=OLD.`id`; END");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+}
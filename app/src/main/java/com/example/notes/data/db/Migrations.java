@@ -0,0 +1,332 @@
+package com.example.notes.data.db;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Миграции схемы AppDatabase между версиями.
+ * SQL здесь должен совпадать с тем, что Room генерирует для сущностей,
+ * иначе проверка схемы при открытии базы упадёт.
+ */
+public final class Migrations {
+
+    private Migrations() {
+    }
+
+    /**
+     * 1 → 2: полнотекстовый индекс notes_fts (FTS4, external content)
+     * и триггеры синхронизации с таблицей notes.
+     */
+    public static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `notes_fts` "
+                    + "USING FTS4(`title` TEXT, `content` TEXT, tokenize=unicode61, content=`notes`)");
+
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_BEFORE_UPDATE "
+                    + "BEFORE UPDATE ON `notes` BEGIN "
+                    + "DELETE FROM `notes_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_BEFORE_DELETE "
+                    + "BEFORE DELETE ON `notes` BEGIN "
+                    + "DELETE FROM `notes_fts` WHERE `docid`=OLD.`rowid`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_AFTER_UPDATE "
+                    + "AFTER UPDATE ON `notes` BEGIN "
+                    + "INSERT INTO `notes_fts`(`docid`, `title`, `content`) "
+                    + "VALUES (NEW.`rowid`, NEW.`title`, NEW.`content`); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_notes_fts_AFTER_INSERT "
+                    + "AFTER INSERT ON `notes` BEGIN "
+                    + "INSERT INTO `notes_fts`(`docid`, `title`, `content`) "
+                    + "VALUES (NEW.`rowid`, NEW.`title`, NEW.`content`); END");
+
+            // Индексируем уже существующие заметки
+            db.execSQL("INSERT INTO `notes_fts`(`notes_fts`) VALUES ('rebuild')");
+        }
+    };
+
+    /**
+     * 2 → 3: таблица черновиков автосохранения note_drafts.
+     */
+    public static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `note_drafts` ("
+                    + "`note_id` INTEGER NOT NULL, `title` TEXT, `content` TEXT, "
+                    + "`important` INTEGER, `updated_at` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`note_id`), "
+                    + "FOREIGN KEY(`note_id`) REFERENCES `notes`(`id`) "
+                    + "ON UPDATE NO ACTION ON DELETE CASCADE )");
+        }
+    };
+
+    /**
+     * 3 → 4: хранение больших заметок кусками.
+     * Тексты режутся в Java тем же NoteChunks.split, что и при записи: SQL-функции substr и length
+     * считают кодовые точки, а CHUNK_SIZE — единицы UTF-16, и суррогатные пары сдвинули бы
+     * границы кусков. В notes.content остаётся первый кусок.
+     */
+    public static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `notes` ADD COLUMN `chunk_count` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `note_chunks` ("
+                    + "`note_id` INTEGER NOT NULL, `idx` INTEGER NOT NULL, `text` TEXT NOT NULL, "
+                    + "PRIMARY KEY(`note_id`, `idx`), "
+                    + "FOREIGN KEY(`note_id`) REFERENCES `notes`(`id`) "
+                    + "ON UPDATE NO ACTION ON DELETE CASCADE )");
+
+            // Кодовая точка — не больше двух единиц UTF-16: короче CHUNK_SIZE / 2 точек резать нечего
+            List<Long> candidates = new ArrayList<>();
+            try (Cursor notes = db.query("SELECT id FROM notes WHERE length(content) > "
+                    + NoteChunks.CHUNK_SIZE / 2)) {
+                while (notes.moveToNext()) {
+                    candidates.add(notes.getLong(0));
+                }
+            }
+
+            SupportSQLiteStatement insertChunk = db.compileStatement(
+                    "INSERT INTO `note_chunks`(`note_id`, `idx`, `text`) VALUES (?, ?, ?)");
+            SupportSQLiteStatement updateHead = db.compileStatement(
+                    "UPDATE `notes` SET `content` = ?, `chunk_count` = ? WHERE `id` = ?");
+            for (long noteId : candidates) {
+                List<String> chunks = NoteChunks.split(readContent(db, noteId));
+                if (chunks.size() <= 1) continue;
+                for (int idx = 1; idx < chunks.size(); idx++) {
+                    insertChunk.bindLong(1, noteId);
+                    insertChunk.bindLong(2, idx);
+                    insertChunk.bindString(3, chunks.get(idx));
+                    insertChunk.executeInsert();
+                }
+                updateHead.bindString(1, chunks.get(0));
+                updateHead.bindLong(2, chunks.size() - 1);
+                updateHead.bindLong(3, noteId);
+                updateHead.executeUpdateDelete();
+            }
+        }
+    };
+
+    // Окно чтения текста до нарезки, в кодовых точках: целиком большая заметка не влезла бы в CursorWindow
+    private static final int READ_WINDOW = 64 * 1024;
+
+    // Полный текст заметки версии 3 (ещё без кусков), окнами substr
+    private static String readContent(SupportSQLiteDatabase db, long noteId) {
+        StringBuilder content = new StringBuilder();
+        for (long start = 1; ; start += READ_WINDOW) {
+            try (Cursor window = db.query("SELECT substr(content, ?, ?) FROM notes WHERE id = ?",
+                    new Object[]{start, READ_WINDOW, noteId})) {
+                String part = window.moveToFirst() ? window.getString(0) : null;
+                if (part == null || part.isEmpty()) break;
+                content.append(part);
+                if (part.codePointCount(0, part.length()) < READ_WINDOW) break;
+            }
+        }
+        return content.toString();
+    }
+
+    /**
+     * 4 → 5: время создания и правки заметок и индексы для сортировок по ним.
+     * У старых заметок настоящего времени нет — берём момент миграции,
+     * порядок внутри одинакового времени задаёт id.
+     */
+    public static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `notes` ADD COLUMN `created_at` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `notes` ADD COLUMN `updated_at` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE notes SET created_at = CAST(strftime('%s', 'now') AS INTEGER) * 1000, "
+                    + "updated_at = CAST(strftime('%s', 'now') AS INTEGER) * 1000");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_important_updated_at` "
+                    + "ON `notes` (`important`, `updated_at`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_updated_at` ON `notes` (`updated_at`)");
+        }
+    };
+
+    /**
+     * 5 → 6: мягкое удаление. Индексы сортировок начинаются с deleted_at,
+     * чтобы выборки живых заметок оставались диапазонами по индексу.
+     */
+    public static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `notes` ADD COLUMN `deleted_at` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("DROP INDEX IF EXISTS `index_notes_important_updated_at`");
+            db.execSQL("DROP INDEX IF EXISTS `index_notes_updated_at`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_deleted_at_important_updated_at` "
+                    + "ON `notes` (`deleted_at`, `important`, `updated_at`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_deleted_at_updated_at` "
+                    + "ON `notes` (`deleted_at`, `updated_at`)");
+        }
+    };
+
+    /**
+     * 6 → 7: хэш полного текста и журнал изменений note_changes с триггерами.
+     * Журнал засевается всеми живыми заметками, поэтому первая инкрементальная выгрузка —
+     * полная; хэши старых заметок не считаются здесь (SQL этого не умеет), выгрузка досчитает их сама.
+     */
+    public static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `notes` ADD COLUMN `content_hash` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `note_changes` ("
+                    + "`seq` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `note_id` INTEGER NOT NULL, "
+                    + "`op` TEXT NOT NULL, `content_hash` INTEGER NOT NULL, `changed_at` INTEGER NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_note_changes_note_id` "
+                    + "ON `note_changes` (`note_id`)");
+            db.execSQL("INSERT INTO note_changes(note_id, op, content_hash, changed_at) "
+                    + "SELECT id, '" + NoteChange.OP_UPSERT + "', 0, updated_at FROM notes "
+                    + "WHERE deleted_at = 0 ORDER BY id");
+
+            // Триггеры журнала в виде версии 7. Не ChangeJournal.install: тот ставит и счётчик
+            // версий по notes.version, а эта колонка появится только в 7 → 8
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS note_changes_AFTER_INSERT "
+                    + "AFTER INSERT ON `notes` BEGIN "
+                    + "INSERT OR REPLACE INTO `note_changes`(`note_id`, `op`, `content_hash`, `changed_at`) "
+                    + "VALUES (NEW.`id`, '" + NoteChange.OP_UPSERT + "', NEW.`content_hash`, NEW.`updated_at`); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS note_changes_AFTER_UPDATE "
+                    + "AFTER UPDATE OF `title`, `content`, `important`, `updated_at`, `deleted_at` ON `notes` BEGIN "
+                    + "INSERT OR REPLACE INTO `note_changes`(`note_id`, `op`, `content_hash`, `changed_at`) "
+                    + "VALUES (NEW.`id`, "
+                    + "CASE WHEN NEW.`deleted_at` = 0 THEN '" + NoteChange.OP_UPSERT + "' "
+                    + "ELSE '" + NoteChange.OP_DELETE + "' END, NEW.`content_hash`, "
+                    + "CASE WHEN NEW.`deleted_at` = 0 THEN NEW.`updated_at` ELSE NEW.`deleted_at` END); END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS note_changes_AFTER_DELETE "
+                    + "AFTER DELETE ON `notes` WHEN OLD.`deleted_at` = 0 BEGIN "
+                    + "INSERT OR REPLACE INTO `note_changes`(`note_id`, `op`, `content_hash`, `changed_at`) "
+                    + "VALUES (OLD.`id`, '" + NoteChange.OP_DELETE + "', 0, "
+                    + "CAST(strftime('%s', 'now') AS INTEGER) * 1000); END");
+        }
+    };
+
+    /**
+     * 7 → 8: колонки синхронизации. Существующие заметки получают sync_id
+     * и считаются не отправленными (version 1, synced_version 0).
+     */
+    public static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `notes` ADD COLUMN `sync_id` TEXT");
+            db.execSQL("ALTER TABLE `notes` ADD COLUMN `version` INTEGER NOT NULL DEFAULT 1");
+            db.execSQL("ALTER TABLE `notes` ADD COLUMN `synced_version` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("UPDATE notes SET sync_id = " + RANDOM_UUID_SQL);
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_notes_sync_id` ON `notes` (`sync_id`)");
+            // Счётчик версий в виде версии 8 (ChangeJournal.install ставит и триггеры колонок 11 → 12)
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS notes_version_AFTER_UPDATE "
+                    + "AFTER UPDATE OF `title`, `content`, `important`, `deleted_at` ON `notes` "
+                    + "WHEN NEW.`version` = OLD.`version` BEGIN "
+                    + "UPDATE `notes` SET `version` = OLD.`version` + 1 WHERE `id` = NEW.`id`; END");
+        }
+    };
+
+    /**
+     * 8 → 9: история правок note_revisions (снимки и дельты, см. NoteHistory).
+     * Старые версии заметок не сохранялись — история начнётся с первого сохранения.
+     */
+    public static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `note_revisions` ("
+                    + "`note_id` INTEGER NOT NULL, `rev` INTEGER NOT NULL, `snapshot` INTEGER NOT NULL, "
+                    + "`title` TEXT, `data` BLOB NOT NULL, `length` INTEGER NOT NULL, "
+                    + "`content_hash` INTEGER NOT NULL, `created_at` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`note_id`, `rev`), "
+                    + "FOREIGN KEY(`note_id`) REFERENCES `notes`(`id`) "
+                    + "ON UPDATE NO ACTION ON DELETE CASCADE )");
+        }
+    };
+
+    /**
+     * 9 → 10: триграммный индекс заголовков title_trigrams и частоты триграмм
+     * title_trigram_counts. Частоты ведут триграммы; заголовки существующих заметок
+     * индексируются здесь же, одним проходом.
+     */
+    public static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `title_trigrams` ("
+                    + "`trigram` INTEGER NOT NULL, `note_id` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`trigram`, `note_id`), "
+                    + "FOREIGN KEY(`note_id`) REFERENCES `notes`(`id`) "
+                    + "ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_title_trigrams_note_id` "
+                    + "ON `title_trigrams` (`note_id`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `title_trigram_counts` ("
+                    + "`trigram` INTEGER NOT NULL, `count` INTEGER NOT NULL, PRIMARY KEY(`trigram`))");
+            TitleTrigramIndex.install(db);
+            TitleTrigramIndex.rebuild(db);
+        }
+    };
+
+    /**
+     * 10 → 11: индекс полного текста больших заметок notes_body_fts.
+     * Продолжения в note_chunks могут быть сжаты (ChunkCodec), SQL их не прочитает —
+     * текст существующих больших заметок собирается здесь же, по заметке за раз.
+     */
+    public static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `notes_body_fts` "
+                    + "USING FTS4(`body` TEXT, tokenize=unicode61)");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS notes_body_fts_AFTER_DELETE "
+                    + "AFTER DELETE ON `notes` BEGIN "
+                    + "DELETE FROM `notes_body_fts` WHERE `docid`=OLD.`id`; END");
+
+            SupportSQLiteStatement insert = db.compileStatement(
+                    "INSERT INTO `notes_body_fts`(`docid`, `body`) VALUES (?, ?)");
+            try (Cursor notes = db.query("SELECT id, content FROM notes WHERE chunk_count > 0")) {
+                while (notes.moveToNext()) {
+                    long noteId = notes.getLong(0);
+                    StringBuilder body = new StringBuilder(notes.getString(1));
+                    try (Cursor chunks = db.query("SELECT CAST(text AS BLOB) FROM note_chunks "
+                            + "WHERE note_id = ? ORDER BY idx", new Object[]{noteId})) {
+                        while (chunks.moveToNext()) {
+                            body.append(ChunkCodec.decode(chunks.getBlob(0)));
+                        }
+                    }
+                    insert.bindLong(1, noteId);
+                    insert.bindString(2, body.toString());
+                    insert.executeInsert();
+                }
+            }
+        }
+    };
+
+    /**
+     * 11 → 12: отправка только изменённых полей. synced_hash — хэш текста, известного серверу
+     * (база дельты), sync_dirty — изменённые заголовок и флаг. Для уже отправленных заметок
+     * базы нет: их текст в следующий раз уйдёт целиком, дальше — дельтами.
+     */
+    public static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `notes` ADD COLUMN `synced_hash` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `notes` ADD COLUMN `sync_dirty` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS notes_dirty_title_AFTER_UPDATE "
+                    + "AFTER UPDATE OF `title` ON `notes` WHEN NEW.`title` IS NOT OLD.`title` BEGIN "
+                    + "UPDATE `notes` SET `sync_dirty` = `sync_dirty` | 1 WHERE `id` = NEW.`id`; END");
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS notes_dirty_important_AFTER_UPDATE "
+                    + "AFTER UPDATE OF `important` ON `notes` WHEN NEW.`important` IS NOT OLD.`important` BEGIN "
+                    + "UPDATE `notes` SET `sync_dirty` = `sync_dirty` | 2 WHERE `id` = NEW.`id`; END");
+        }
+    };
+
+    /**
+     * Все миграции по порядку — для AppDatabase и теста миграций.
+     */
+    public static final Migration[] ALL = {
+            MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7,
+            MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11, MIGRATION_11_12,
+    };
+
+    // Случайный UUID версии 4 в обычной записи 8-4-4-4-12 (как UUID.randomUUID().toString()).
+    // Без подзапроса: некоррелированный подзапрос SQLite вычислил бы один раз на все строки
+    static final String RANDOM_UUID_SQL = "(lower(hex(randomblob(4))) || '-' || lower(hex(randomblob(2))) "
+            + "|| '-4' || substr(lower(hex(randomblob(2))), 2) "
+            + "|| '-' || substr('89ab', 1 + abs(random()) % 4, 1) || substr(lower(hex(randomblob(2))), 2) "
+            + "|| '-' || lower(hex(randomblob(6))))";
+}
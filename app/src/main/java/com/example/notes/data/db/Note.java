@@ -2,11 +2,25 @@ package com.example.notes.data.db;
 
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "notes")
+@Entity(
+        tableName = "notes",
+        indices = {
+                // «Сначала важные» и «только важные» среди живых — диапазоны по одному индексу
+                @Index(value = {"deleted_at", "important", "updated_at"}),
+                // «Недавно изменённые» среди живых и поиск надгробий для очистки
+                @Index(value = {"deleted_at", "updated_at"}),
+                // Сопоставление с записями сервера синхронизации
+                @Index(value = {"sync_id"}, unique = true)
+        })
 public class Note {
 
+    // Биты sync_dirty: какие поля изменены после последнего обмена с сервером
+    public static final int DIRTY_TITLE = 1;
+    public static final int DIRTY_IMPORTANT = 2;
+
     @PrimaryKey(autoGenerate = true)
     public long id;
 
@@ -18,4 +32,46 @@ public class Note {
 
     @ColumnInfo(name = "important")
     public boolean important;
+
+    // Сколько продолжений текста лежит в note_chunks (0 — весь текст в content)
+    @ColumnInfo(name = "chunk_count", defaultValue = "0")
+    public int chunkCount;
+
+    // Время создания и последней правки, мс с эпохи (0 — не заполнено, см. NoteDao.insertNote)
+    @ColumnInfo(name = "created_at", defaultValue = "0")
+    public long createdAt;
+
+    @ColumnInfo(name = "updated_at", defaultValue = "0")
+    public long updatedAt;
+
+    // Когда заметку удалили (мягкое удаление, можно отменить); 0 — заметка жива
+    @ColumnInfo(name = "deleted_at", defaultValue = "0")
+    public long deletedAt;
+
+    // Хэш полного текста (ContentHash); 0 — не посчитан (заметка записана до появления хэша)
+    @ColumnInfo(name = "content_hash", defaultValue = "0")
+    public long contentHash;
+
+    // === Синхронизация между устройствами ===
+
+    // Глобальный id заметки, одинаковый на всех устройствах (см. NoteDao.insertNote)
+    @ColumnInfo(name = "sync_id")
+    public String syncId;
+
+    // Счётчик правок строки: растёт триггером при каждой правке синхронизируемых колонок
+    @ColumnInfo(name = "version", defaultValue = "1")
+    public long version = 1;
+
+    // Последняя версия, которую принял сервер; version > synced_version — есть что отправить
+    @ColumnInfo(name = "synced_version", defaultValue = "0")
+    public long syncedVersion;
+
+    // Хэш текста, который последним совпал с сервером, — база дельты текста при отправке; 0 — неизвестен
+    @ColumnInfo(name = "synced_hash", defaultValue = "0")
+    public long syncedHash;
+
+    // Заголовок и флаг, изменённые после обмена (биты DIRTY_*, ставят триггеры ChangeJournal);
+    // текст отдельного бита не требует — он сравнивается по synced_hash
+    @ColumnInfo(name = "sync_dirty", defaultValue = "0")
+    public int syncDirty;
 }
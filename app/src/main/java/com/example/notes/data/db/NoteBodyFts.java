@@ -0,0 +1,27 @@
+package com.example.notes.data.db;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+/**
+ * Полнотекстовый индекс полного текста больших заметок (chunk_count > 0).
+ * notes_fts видит только notes.content — первый кусок; продолжения лежат в note_chunks
+ * сжатыми, и external content FTS4 их прочитать не может. Поэтому полный текст
+ * такой заметки пишет сюда NoteDao (при вставке и замене текста), docid = id заметки.
+ * Короткие заметки сюда не попадают — их целиком покрывает notes_fts.
+ * Строка стирается триггером при удалении заметки (см. FtsTriggers).
+ */
+@Fts4(tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "notes_body_fts")
+public class NoteBodyFts {
+
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    public long rowid;
+
+    @ColumnInfo(name = "body")
+    public String body;
+}
@@ -0,0 +1,43 @@
+package com.example.notes.data.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Запись журнала изменений: последняя правка заметки с монотонным номером seq.
+ * Журнал пишут триггеры на notes (см. ChangeJournal) в той же транзакции, что и саму правку.
+ * На заметку хранится одна запись — новая правка заменяет её и получает новый seq
+ * (AUTOINCREMENT номера не переиспользует), поэтому «всё, что изменилось после
+ * контрольной точки», — это просто seq > checkpoint, а размер журнала не растёт с числом правок.
+ */
+@Entity(
+        tableName = "note_changes",
+        indices = @Index(value = {"note_id"}, unique = true))
+public class NoteChange {
+
+    public static final String OP_UPSERT = "upsert";
+    public static final String OP_DELETE = "delete";
+
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = "seq")
+    public long seq;
+
+    @ColumnInfo(name = "note_id")
+    public long noteId;
+
+    // OP_UPSERT — заметка создана или изменена, OP_DELETE — удалена
+    @NonNull
+    @ColumnInfo(name = "op")
+    public String op = OP_UPSERT;
+
+    // Хэш полного текста на момент правки (0 — не посчитан, см. ContentHash)
+    @ColumnInfo(name = "content_hash")
+    public long contentHash;
+
+    // Время правки или удаления, мс с эпохи
+    @ColumnInfo(name = "changed_at")
+    public long changedAt;
+}
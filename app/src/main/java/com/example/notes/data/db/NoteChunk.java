@@ -0,0 +1,43 @@
+package com.example.notes.data.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+
+/**
+ * Кусок текста большой заметки.
+ * Первый кусок (idx = 0) хранится прямо в notes.content, здесь лежат остальные
+ * с idx от 1 до notes.chunk_count. Удаляются вместе с заметкой (ON DELETE CASCADE).
+ * Сущность описывает схему; строки пишутся и читаются через NoteDao байтами в формате
+ * ChunkCodec — в колонке text лежит либо старый TEXT, либо BLOB.
+ */
+@Entity(
+        tableName = "note_chunks",
+        primaryKeys = {"note_id", "idx"},
+        foreignKeys = @ForeignKey(
+                entity = Note.class,
+                parentColumns = "id",
+                childColumns = "note_id",
+                onDelete = ForeignKey.CASCADE))
+public class NoteChunk {
+
+    @ColumnInfo(name = "note_id")
+    public long noteId;
+
+    @ColumnInfo(name = "idx")
+    public int idx;
+
+    @NonNull
+    @ColumnInfo(name = "text")
+    public String text = "";
+
+    public NoteChunk() {
+    }
+
+    public NoteChunk(long noteId, int idx, @NonNull String text) {
+        this.noteId = noteId;
+        this.idx = idx;
+        this.text = text;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.notes.data.db;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Нарезка текста заметки на куски фиксированного размера.
+ * Первый кусок становится notes.content (его читают список, поиск и первый экран редактора),
+ * остальные уходят в note_chunks и читаются окнами по мере надобности.
+ */
+public final class NoteChunks {
+
+    // Размер куска в символах: заметно меньше лимита CursorWindow даже в худшем случае UTF-8
+    public static final int CHUNK_SIZE = 16 * 1024;
+
+    private NoteChunks() {
+    }
+
+    /**
+     * Делит текст на куски. Граница не разрывает суррогатную пару.
+     * Для null или короткого текста возвращает один кусок (или пустой список для null).
+     */
+    @NonNull
+    public static List<String> split(@Nullable String content) {
+        if (content == null) return Collections.emptyList();
+        if (content.length() <= CHUNK_SIZE) return Collections.singletonList(content);
+
+        List<String> chunks = new ArrayList<>(content.length() / CHUNK_SIZE + 1);
+        int start = 0;
+        while (start < content.length()) {
+            int end = Math.min(content.length(), start + CHUNK_SIZE);
+            if (end < content.length() && Character.isHighSurrogate(content.charAt(end - 1))) {
+                end--;
+            }
+            chunks.add(content.substring(start, end));
+            start = end;
+        }
+        return chunks;
+    }
+}
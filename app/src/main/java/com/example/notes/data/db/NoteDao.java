@@ -1,27 +1,455 @@
 package com.example.notes.data.db;
 
+import androidx.annotation.Nullable;
 import androidx.room.Dao;
-import androidx.room.Delete;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
-import androidx.room.Update;
+import androidx.room.Transaction;
+
+import com.example.notes.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 @Dao
-public interface NoteDao {
+public abstract class NoteDao {
+
+    // Колонки проекции NoteSummary: превью обрезается в SQL, полное тело в CursorWindow не попадает
+    public static final String SUMMARY_COLUMNS = "id, title, substr(content, 1, " + NoteSummary.PREVIEW_LENGTH
+            + ") AS preview, important, updated_at, (chunk_count = 0 AND length(content) <= "
+            + NoteSummary.PREVIEW_LENGTH + ") AS complete";
 
     @Query("SELECT * FROM notes WHERE id = :id")
-    Note getById(long id);
+    public abstract Note getById(long id);
+
+    // Голая вставка строки без кусков, хеша и индексов — только для insertNote, поэтому
+    // DAO — абстрактный класс, а не интерфейс: снаружи пакета её не вызвать
+    @Insert
+    protected abstract long insert(Note note); // возвращает id
+
+    /**
+     * Вставляет заметку с полным текстом: первый кусок идёт в notes.content,
+     * остальные — в note_chunks, а полный текст большой заметки — в notes_body_fts.
+     * В объекте note остаётся полный текст, заполняются только id и chunkCount.
+     */
+    @Transaction
+    public long insertNote(Note note) {
+        if (note.createdAt == 0) note.createdAt = System.currentTimeMillis();
+        if (note.updatedAt == 0) note.updatedAt = note.createdAt;
+        note.contentHash = ContentHash.of(note.content);
+        if (note.syncId == null) note.syncId = UUID.randomUUID().toString();
+
+        List<String> chunks = NoteChunks.split(note.content);
+        if (chunks.size() <= 1) {
+            note.chunkCount = 0;
+            note.id = insert(note);
+            indexTitle(note.id, note.title);
+            return note.id;
+        }
+
+        String fullContent = note.content;
+        note.content = chunks.get(0);
+        note.chunkCount = chunks.size() - 1;
+        try {
+            note.id = insert(note);
+        } finally {
+            note.content = fullContent;
+        }
+        insertChunks(note.id, chunks);
+        insertBodyIndex(note.id, fullContent);
+        indexTitle(note.id, note.title);
+        return note.id;
+    }
+
+    /**
+     * Вставляет порцию заметок с полным текстом одной транзакцией (импорт порциями).
+     */
+    @Transaction
+    public void insertNotes(List<Note> notes) {
+        for (Note note : notes) {
+            insertNote(note);
+        }
+    }
+
+    // === Точечные обновления отдельных колонок (редактор пишет только изменённые поля) ===
+
+    @Query("UPDATE notes SET title = :title WHERE id = :id")
+    public abstract void setTitle(long id, String title);
+
+    /**
+     * Новый заголовок вместе с его триграммами.
+     */
+    @Transaction
+    public void updateTitle(long id, String title) {
+        setTitle(id, title);
+        indexTitle(id, title);
+    }
+
+    // Время последней правки (не трогает индексируемые FTS колонки — без переиндексации)
+    @Query("UPDATE notes SET updated_at = :updatedAt WHERE id = :id")
+    public abstract void touch(long id, long updatedAt);
+
+    @Query("UPDATE notes SET content = :head, chunk_count = :chunkCount, content_hash = :contentHash "
+            + "WHERE id = :id")
+    public abstract void updateContentHead(long id, String head, int chunkCount, long contentHash);
+
+    /**
+     * Заменяет полный текст заметки: заново режет на куски, переписывает note_chunks
+     * и индекс полного текста notes_body_fts.
+     */
+    @Transaction
+    public void updateContent(long id, String content) {
+        List<String> chunks = NoteChunks.split(content);
+        deleteChunks(id);
+        deleteBodyIndex(id);
+        updateContentHead(id, chunks.isEmpty() ? content : chunks.get(0), Math.max(0, chunks.size() - 1),
+                ContentHash.of(content));
+        if (chunks.size() > 1) {
+            insertChunks(id, chunks);
+            insertBodyIndex(id, content);
+        }
+    }
+
+    @Query("UPDATE notes SET important = :important WHERE id = :id")
+    public abstract void updateImportant(long id, boolean important);
+
+    /**
+     * Сохранение правки редактора одной транзакцией: версия в истории правок (пишется,
+     * пока в базе ещё старая версия), изменённые колонки, время правки, удаление черновика.
+     * null — поле не менялось. Этот путь вызывает NoteRepository.applyEdit.
+     */
+    @Transaction
+    public void applyEdit(long id, @Nullable String title, @Nullable String content,
+                           @Nullable Boolean important, long now) {
+        if (title != null || content != null) {
+            Note before = getById(id);
+            if (before != null) {
+                NoteHistory.record(this, before, title != null ? title : before.title, content, now);
+            }
+        }
+        if (title != null) updateTitle(id, title);
+        if (content != null) updateContent(id, content);
+        if (important != null) updateImportant(id, important);
+        if (title != null || content != null || important != null) touch(id, now);
+        deleteDraft(id);
+    }
+
+    @Query("DELETE FROM notes WHERE id = :id")
+    public abstract void deleteById(long id);
+
+    // === Мягкое удаление ===
+    // Удалённая заметка получает deleted_at и пропадает из всех выборок, пока её можно вернуть;
+    // потом надгробия стираются пачками (purgeDeleted). Живые заметки — deleted_at = 0.
+
+    // Сколько держим удалённые заметки для «Отменить», прежде чем стереть
+    public static final long TOMBSTONE_TTL_MS = 10 * 60 * 1000;
+
+    // Сколько надгробий стираем одной транзакцией
+    public static final int PURGE_BATCH_SIZE = 200;
+
+    @Query("UPDATE notes SET deleted_at = :deletedAt WHERE id IN (:ids)")
+    public abstract void softDelete(List<Long> ids, long deletedAt);
+
+    @Query("UPDATE notes SET deleted_at = 0 WHERE id IN (:ids)")
+    public abstract void restore(List<Long> ids);
+
+    // Диапазон по индексу (deleted_at, updated_at); куски, черновики и FTS уходят каскадом и триггером.
+    // Заметку, которую видел сервер синхронизации, стираем только после отправки её удаления
+    @Query("DELETE FROM notes WHERE id IN (SELECT id FROM notes "
+            + "WHERE deleted_at > 0 AND deleted_at <= :deletedBefore "
+            + "AND (synced_version = 0 OR synced_version = version) LIMIT :limit)")
+    public abstract int purgeDeleted(long deletedBefore, int limit);
+
+    // В запросах, упорядоченных по id, фильтр пишется как +deleted_at: унарный плюс не даёт
+    // планировщику взять индекс по deleted_at и сортировать результат во временном B-дереве
+
+    @Query("SELECT * FROM notes WHERE +deleted_at = 0 ORDER BY id DESC")
+    public abstract List<Note> getAll();
+
+    // === Keyset-пагинация по id DESC (без OFFSET — стоимость страницы не растёт с позицией) ===
+    // Список читает только проекцию NoteSummary: тело заметки обрезается до превью в SQL
+
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE +deleted_at = 0 "
+            + "ORDER BY id DESC LIMIT :limit")
+    public abstract List<NoteSummary> getFirstPage(int limit);
+
+    // Запросы страниц «ниже» ключа вынесены в константы: их планы проверяет NoteDaoBenchmark
+    public static final String PAGE_BEFORE_SQL = "SELECT " + SUMMARY_COLUMNS + " FROM notes "
+            + "WHERE +deleted_at = 0 AND id < :beforeId ORDER BY id DESC LIMIT :limit";
+
+    @Query(PAGE_BEFORE_SQL)
+    public abstract List<NoteSummary> getPageBefore(long beforeId, int limit);
+
+    // Страница «выше» ключа: читаем по возрастанию, вызывающий разворачивает список
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes "
+            + "WHERE +deleted_at = 0 AND id > :afterId ORDER BY id ASC LIMIT :limit")
+    public abstract List<NoteSummary> getPageAfter(long afterId, int limit);
+
+    // === Сортировки по времени правки ===
+    // Ключ страницы — кортеж колонок сортировки плюс id; сравнение row value идёт диапазоном
+    // по индексу (deleted_at, important, updated_at) или (deleted_at, updated_at) — без сортировки в памяти
+
+    // «Недавно изменённые»: индекс (deleted_at, updated_at), id замыкает ключ (rowid есть в каждом индексе)
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE deleted_at = 0 "
+            + "ORDER BY updated_at DESC, id DESC LIMIT :limit")
+    public abstract List<NoteSummary> getEditedFirstPage(int limit);
+
+    public static final String EDITED_PAGE_BEFORE_SQL = "SELECT " + SUMMARY_COLUMNS + " FROM notes "
+            + "WHERE deleted_at = 0 AND (updated_at, id) < (:updatedAt, :id) "
+            + "ORDER BY updated_at DESC, id DESC LIMIT :limit";
+
+    @Query(EDITED_PAGE_BEFORE_SQL)
+    public abstract List<NoteSummary> getEditedPageBefore(long updatedAt, long id, int limit);
+
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes "
+            + "WHERE deleted_at = 0 AND (updated_at, id) > (:updatedAt, :id) "
+            + "ORDER BY updated_at ASC, id ASC LIMIT :limit")
+    public abstract List<NoteSummary> getEditedPageAfter(long updatedAt, long id, int limit);
+
+    // «Сначала важные»: живая часть индекса (deleted_at, important, updated_at), от конца к началу
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE deleted_at = 0 "
+            + "ORDER BY important DESC, updated_at DESC, id DESC LIMIT :limit")
+    public abstract List<NoteSummary> getImportantFirstPage(int limit);
+
+    public static final String IMPORTANT_FIRST_PAGE_BEFORE_SQL = "SELECT " + SUMMARY_COLUMNS + " FROM notes "
+            + "WHERE deleted_at = 0 AND (important, updated_at, id) < (:important, :updatedAt, :id) "
+            + "ORDER BY important DESC, updated_at DESC, id DESC LIMIT :limit";
+
+    @Query(IMPORTANT_FIRST_PAGE_BEFORE_SQL)
+    public abstract List<NoteSummary> getImportantFirstPageBefore(boolean important, long updatedAt, long id, int limit);
+
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes "
+            + "WHERE deleted_at = 0 AND (important, updated_at, id) > (:important, :updatedAt, :id) "
+            + "ORDER BY important ASC, updated_at ASC, id ASC LIMIT :limit")
+    public abstract List<NoteSummary> getImportantFirstPageAfter(boolean important, long updatedAt, long id, int limit);
+
+    // «Только важные»: равенство по important, диапазон по (updated_at, id) того же индекса
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE deleted_at = 0 AND important = 1 "
+            + "ORDER BY updated_at DESC, id DESC LIMIT :limit")
+    public abstract List<NoteSummary> getImportantOnlyFirstPage(int limit);
+
+    public static final String IMPORTANT_ONLY_PAGE_BEFORE_SQL = "SELECT " + SUMMARY_COLUMNS + " FROM notes "
+            + "WHERE deleted_at = 0 AND important = 1 AND (updated_at, id) < (:updatedAt, :id) "
+            + "ORDER BY updated_at DESC, id DESC LIMIT :limit";
+
+    @Query(IMPORTANT_ONLY_PAGE_BEFORE_SQL)
+    public abstract List<NoteSummary> getImportantOnlyPageBefore(long updatedAt, long id, int limit);
+
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes WHERE deleted_at = 0 AND important = 1 "
+            + "AND (updated_at, id) > (:updatedAt, :id) "
+            + "ORDER BY updated_at ASC, id ASC LIMIT :limit")
+    public abstract List<NoteSummary> getImportantOnlyPageAfter(long updatedAt, long id, int limit);
+
+    // === Полнотекстовый поиск (FTS4) ===
+    // Берём самые свежие совпадения, ранжирование по matchinfo делает NoteSearch
+
+    @Query("SELECT notes.id AS id, notes.title AS title, notes.important AS important, "
+            + "snippet(notes_fts, '', '', '…', -1, 12) AS snippet, "
+            + "matchinfo(notes_fts, 'pcx') AS match_info "
+            + "FROM notes_fts JOIN notes ON notes.id = notes_fts.docid "
+            + "WHERE notes_fts MATCH :query AND notes.deleted_at = 0 "
+            + "ORDER BY notes.id DESC LIMIT :limit")
+    public abstract List<NoteSearchResult> search(String query, int limit);
+
+    // То же по полному тексту больших заметок: совпадения за пределами первого куска
+    @Query("SELECT notes.id AS id, notes.title AS title, notes.important AS important, "
+            + "snippet(notes_body_fts, '', '', '…', -1, 12) AS snippet, "
+            + "matchinfo(notes_body_fts, 'pcx') AS match_info "
+            + "FROM notes_body_fts JOIN notes ON notes.id = notes_body_fts.docid "
+            + "WHERE notes_body_fts MATCH :query AND notes.deleted_at = 0 "
+            + "ORDER BY notes.id DESC LIMIT :limit")
+    public abstract List<NoteSearchResult> searchBodies(String query, int limit);
+
+    // Полный текст большой заметки в notes_body_fts (строку при удалении заметки стирает триггер)
+    @Query("INSERT INTO notes_body_fts(docid, body) VALUES (:noteId, :body)")
+    public abstract void insertBodyIndex(long noteId, String body);
+
+    @Query("DELETE FROM notes_body_fts WHERE docid = :noteId")
+    public abstract void deleteBodyIndex(long noteId);
+
+    // Полные заметки по возрастанию id — для потокового экспорта страницами
+    @Query("SELECT * FROM notes WHERE +deleted_at = 0 AND id > :afterId ORDER BY id ASC LIMIT :limit")
+    public abstract List<Note> getNotesAfter(long afterId, int limit);
+
+    // === Журнал изменений (пишут триггеры, см. ChangeJournal) ===
+
+    @Query("SELECT * FROM note_changes WHERE seq > :afterSeq ORDER BY seq LIMIT :limit")
+    public abstract List<NoteChange> getChangesAfter(long afterSeq, int limit);
+
+    @Query("SELECT * FROM notes WHERE id IN (:ids)")
+    public abstract List<Note> getByIds(List<Long> ids);
+
+    // Удаления, уже выгруженные до контрольной точки, больше не нужны, если строки заметки нет
+    @Query("DELETE FROM note_changes WHERE op = '" + NoteChange.OP_DELETE + "' AND seq <= :checkpoint "
+            + "AND NOT EXISTS (SELECT 1 FROM notes WHERE notes.id = note_changes.note_id)")
+    public abstract int compactChanges(long checkpoint);
+
+    // === Синхронизация ===
+
+    @Query("SELECT * FROM notes WHERE sync_id IN (:syncIds)")
+    public abstract List<Note> getBySyncIds(List<String> syncIds);
+
+    // Сервер принял версию version с текстом contentHash; если заметку успели снова изменить,
+    // она остаётся к отправке вместе с отметками изменённых полей
+    @Query("UPDATE notes SET synced_version = :version, synced_hash = :contentHash, "
+            + "sync_dirty = CASE WHEN version = :version THEN 0 ELSE sync_dirty END "
+            + "WHERE id = :id AND synced_version < :version")
+    public abstract void markSynced(long id, long version, long contentHash);
+
+    // Заметка совпадает с сервером (только что применена с него)
+    @Query("UPDATE notes SET synced_version = version, synced_hash = content_hash, sync_dirty = 0 WHERE id = :id")
+    public abstract void markClean(long id);
+
+    // === История правок (см. NoteHistory) ===
 
     @Insert
-    long insert(Note note); // возвращает id
+    public abstract void insertRevision(NoteRevision revision);
+
+    @Query("SELECT rev, snapshot, title, length, content_hash, created_at, length(data) AS size "
+            + "FROM note_revisions WHERE note_id = :noteId ORDER BY rev DESC")
+    public abstract List<NoteRevisionInfo> getRevisionInfos(long noteId);
+
+    // Ближайший снимок не новее rev и дельты после него — диапазон по первичному ключу
+    @Query("SELECT * FROM note_revisions WHERE note_id = :noteId AND rev <= :rev "
+            + "AND rev >= (SELECT MAX(rev) FROM note_revisions "
+            + "WHERE note_id = :noteId AND rev <= :rev AND snapshot = 1) ORDER BY rev")
+    public abstract List<NoteRevision> getRevisionChain(long noteId, int rev);
+
+    @Query("DELETE FROM note_revisions WHERE note_id = :noteId AND rev < :rev")
+    public abstract int deleteRevisionsBefore(long noteId, int rev);
+
+    // === Триграммный индекс заголовков (см. Trigrams, TitleTrigramIndex) ===
+
+    @Query("INSERT OR IGNORE INTO title_trigrams(trigram, note_id) VALUES (:trigram, :noteId)")
+    public abstract void insertTrigram(long trigram, long noteId);
+
+    @Query("DELETE FROM title_trigrams WHERE note_id = :noteId AND trigram IN (:trigrams)")
+    public abstract void deleteTrigrams(long noteId, List<Long> trigrams);
+
+    @Query("SELECT trigram FROM title_trigrams WHERE note_id = :noteId")
+    public abstract List<Long> getTrigrams(long noteId);
+
+    /**
+     * Приводит триграммы заметки к заголовку: пишутся только появившиеся и исчезнувшие,
+     * так что правка одного слова трогает несколько строк индекса, а не весь заголовок.
+     */
+    @Transaction
+    public void indexTitle(long noteId, String title) {
+        Set<Long> wanted = new HashSet<>();
+        for (long trigram : Trigrams.ofTitle(title)) {
+            wanted.add(trigram);
+        }
+        List<Long> stale = new ArrayList<>();
+        for (long trigram : getTrigrams(noteId)) {
+            if (!wanted.remove(trigram)) stale.add(trigram);
+        }
+        if (!stale.isEmpty()) deleteTrigrams(noteId, stale);
+        for (long trigram : wanted) {
+            insertTrigram(trigram, noteId);
+        }
+    }
+
+    @Query("SELECT * FROM title_trigram_counts WHERE trigram IN (:trigrams)")
+    public abstract List<TitleTrigramCount> getTrigramCounts(List<Long> trigrams);
+
+    // Живые заметки, у которых больше всего общих с запросом редких триграмм (при равенстве — новые).
+    // Списки редких триграмм короткие, поэтому собираем их целиком; CROSS JOIN держит
+    // title_trigrams внешним циклом, чтобы фильтр deleted_at не увёл выборку в перебор notes
+    public static final String TRIGRAM_CANDIDATES_SQL = "SELECT title_trigrams.note_id FROM title_trigrams "
+            + "CROSS JOIN notes ON notes.id = title_trigrams.note_id "
+            + "WHERE title_trigrams.trigram IN (:trigrams) AND notes.deleted_at = 0 "
+            + "GROUP BY title_trigrams.note_id ORDER BY COUNT(*) DESC, title_trigrams.note_id DESC "
+            + "LIMIT :limit";
+
+    @Query(TRIGRAM_CANDIDATES_SQL)
+    public abstract List<Long> getTrigramCandidates(List<Long> trigrams, int limit);
+
+    // Точечные проверки по первичному ключу (trigram, note_id)
+    @Query("SELECT note_id, COUNT(*) AS shared FROM title_trigrams "
+            + "WHERE trigram IN (:trigrams) AND note_id IN (:noteIds) GROUP BY note_id")
+    public abstract List<TrigramMatch> countSharedTrigrams(List<Long> trigrams, List<Long> noteIds);
+
+    @Query("SELECT id, title, important, substr(content, 1, :previewLength) AS snippet, NULL AS match_info "
+            + "FROM notes WHERE id IN (:ids) AND +deleted_at = 0")
+    public abstract List<NoteSearchResult> getSearchRows(List<Long> ids, int previewLength);
+
+    // === Черновики автосохранения ===
+
+    @Query("SELECT * FROM note_drafts WHERE note_id = :noteId")
+    public abstract NoteDraft getDraft(long noteId);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void upsertDraft(NoteDraft draft);
+
+    @Query("DELETE FROM note_drafts WHERE note_id = :noteId")
+    public abstract void deleteDraft(long noteId);
+
+    // === Куски больших заметок ===
+    // Продолжения хранятся в формате ChunkCodec (сжатые, если это выгодно), поэтому
+    // пишутся и читаются байтами: колонка text объявлена TEXT, но держит и BLOB
+
+    @Query("INSERT INTO note_chunks(note_id, idx, text) VALUES (:noteId, :idx, :data)")
+    public abstract void insertChunk(long noteId, int idx, byte[] data);
+
+    /**
+     * Пишет куски начиная со второго (первый лежит в notes.content), сжимая каждый.
+     */
+    public void insertChunks(long noteId, List<String> chunks) {
+        long rawBytes = 0;
+        long storedBytes = 0;
+        for (int i = 1; i < chunks.size(); i++) {
+            byte[] data = ChunkCodec.encode(chunks.get(i));
+            insertChunk(noteId, i, data);
+            rawBytes += chunks.get(i).length() * 2L;
+            storedBytes += data.length;
+        }
+        Metrics.add("db.chunks.raw.bytes", rawBytes);
+        Metrics.add("db.chunks.stored.bytes", storedBytes);
+    }
+
+    @Query("DELETE FROM note_chunks WHERE note_id = :noteId")
+    public abstract void deleteChunks(long noteId);
+
+    // Окно продолжений: куски с fromIdx, не больше count штук. CAST отдаёт байты
+    // и для старых строк, записанных текстом до сжатия
+    @Query("SELECT CAST(text AS BLOB) FROM note_chunks WHERE note_id = :noteId AND idx >= :fromIdx "
+            + "ORDER BY idx LIMIT :count")
+    public abstract List<byte[]> getChunkData(long noteId, int fromIdx, int count);
+
+    /**
+     * Окно продолжений текста, распакованное.
+     */
+    public List<String> getChunkTexts(long noteId, int fromIdx, int count) {
+        List<byte[]> data = getChunkData(noteId, fromIdx, count);
+        List<String> texts = new ArrayList<>(data.size());
+        for (byte[] chunk : data) {
+            texts.add(ChunkCodec.decode(chunk));
+        }
+        return texts;
+    }
 
-    @Update
-    void update(Note note);
+    /**
+     * Полный текст заметки: content плюс все продолжения, читаемые окнами.
+     * Нужен экспорту и другим операциям над целым текстом.
+     */
+    @Transaction
+    public String loadFullContent(Note note) {
+        if (note.chunkCount == 0 || note.content == null) return note.content;
 
-    @Delete
-    void delete(Note note);
+        StringBuilder full = new StringBuilder(note.content.length() * (note.chunkCount + 1));
+        full.append(note.content);
+        for (int from = 1; from <= note.chunkCount; from += 8) {
+            for (String text : getChunkTexts(note.id, from, 8)) {
+                full.append(text);
+            }
+        }
+        return full.toString();
+    }
 
-    @Query("SELECT * FROM notes ORDER BY id DESC")
-    List<Note> getAll();
-}
\ No newline at end of file
+    @Query("SELECT COUNT(*) FROM notes WHERE deleted_at = 0")
+    public abstract int count();
+}
@@ -0,0 +1,41 @@
+package com.example.notes.data.db;
+
+import androidx.annotation.Nullable;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.PrimaryKey;
+
+/**
+ * Черновик несохранённых правок заметки (автосохранение редактора).
+ * Хранит только изменённые поля: null — поле не менялось.
+ * Удаляется вместе с заметкой (ON DELETE CASCADE).
+ */
+@Entity(
+        tableName = "note_drafts",
+        foreignKeys = @ForeignKey(
+                entity = Note.class,
+                parentColumns = "id",
+                childColumns = "note_id",
+                onDelete = ForeignKey.CASCADE))
+public class NoteDraft {
+
+    @PrimaryKey
+    @ColumnInfo(name = "note_id")
+    public long noteId;
+
+    @Nullable
+    @ColumnInfo(name = "title")
+    public String title;
+
+    @Nullable
+    @ColumnInfo(name = "content")
+    public String content;
+
+    @Nullable
+    @ColumnInfo(name = "important")
+    public Boolean important;
+
+    @ColumnInfo(name = "updated_at")
+    public long updatedAt;
+}
@@ -0,0 +1,23 @@
+package com.example.notes.data.db;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+/**
+ * Полнотекстовый индекс (FTS4, external content) по заголовку и тексту заметок.
+ * Сам текст не дублируется — таблица ссылается на notes,
+ * а триггеры Room синхронизируют индекс при каждой вставке, изменении и удалении.
+ * Токенизатор unicode61 — чтобы регистр кириллицы не влиял на поиск.
+ */
+@Fts4(contentEntity = Note.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "notes_fts")
+public class NoteFts {
+
+    @ColumnInfo(name = "title")
+    public String title;
+
+    @ColumnInfo(name = "content")
+    public String content;
+}
@@ -0,0 +1,155 @@
+package com.example.notes.data.db;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.notes.metrics.Metrics;
+
+import java.util.List;
+
+/**
+ * История правок заметки в note_revisions.
+ * Каждое сохранение добавляет версию-дельту от предыдущей (TextDelta), поэтому история
+ * растёт с размером правок, а не с размером заметки. Периодически вместо дельты пишется
+ * полный снимок — не реже раза в SNAPSHOT_INTERVAL версий и как только дельты с последнего
+ * снимка перевешивают сам снимок, — так восстановление любой версии проигрывает
+ * не больше SNAPSHOT_INTERVAL дельт от ближайшего снимка.
+ * Хранится не меньше MAX_REVISIONS последних версий: старые отрезаются целыми цепочками
+ * «снимок + его дельты», и оставшиеся версии не нужно пересобирать.
+ */
+public final class NoteHistory {
+
+    static final int SNAPSHOT_INTERVAL = 16;
+    static final int MAX_REVISIONS = 50;
+
+    private NoteHistory() {
+    }
+
+    /**
+     * Записывает новую версию заметки. Вызывается в транзакции записи,
+     * пока в базе ещё старая версия before. content == null — текст не менялся:
+     * если история знает текущий текст (хэш последней версии совпадает с before.contentHash),
+     * пишется версия с новым заголовком и пустой дельтой, а тело заметки не читается.
+     * Такие версии не переходят в снимки — снимок потребовал бы прочитать тело.
+     */
+    public static void record(@NonNull NoteDao noteDao, @NonNull Note before,
+                              @Nullable String title, @Nullable String content, long now) {
+        long start = Metrics.now();
+        List<NoteRevisionInfo> revisions = noteDao.getRevisionInfos(before.id);  // от новых к старым
+        int lastRev = revisions.isEmpty() ? 0 : revisions.get(0).rev;
+        int added = 0;
+
+        // Сколько дельт и байт накопилось после последнего снимка
+        int deltas = 0;
+        long deltaBytes = 0;
+        long snapshotBytes = 0;
+        for (NoteRevisionInfo info : revisions) {
+            if (info.snapshot) {
+                snapshotBytes = info.size;
+                break;
+            }
+            deltas++;
+            deltaBytes += info.size;
+        }
+
+        String beforeContent = null;
+        long beforeHash = before.contentHash;
+        int beforeLength = revisions.isEmpty() ? 0 : revisions.get(0).length;
+        if (revisions.isEmpty() || beforeHash == ContentHash.UNKNOWN
+                || revisions.get(0).contentHash != beforeHash
+                || !sameTitle(revisions.get(0).title, before.title)) {
+            // Истории нет или заметку меняли в обход (импорт, синхронизация) — дельту
+            // можно строить только от известного текста, поэтому сначала снимок старой версии
+            beforeContent = fullContent(noteDao, before);
+            if (beforeHash == ContentHash.UNKNOWN) beforeHash = ContentHash.of(beforeContent);
+            beforeLength = beforeContent.length();
+            byte[] data = ChunkCodec.encode(beforeContent);
+            insert(noteDao, before.id, ++lastRev, true, before.title, beforeLength, data, beforeHash, before.updatedAt);
+            added++;
+            deltas = 0;
+            deltaBytes = 0;
+            snapshotBytes = data.length;
+        }
+
+        if (content == null) {
+            insert(noteDao, before.id, ++lastRev, false, title, beforeLength,
+                    TextDelta.unchanged(beforeLength), beforeHash, now);
+        } else {
+            if (beforeContent == null) beforeContent = fullContent(noteDao, before);
+            byte[] delta = TextDelta.diff(beforeContent, content);
+            boolean snapshot = deltas + 1 >= SNAPSHOT_INTERVAL || deltaBytes + delta.length > snapshotBytes;
+            insert(noteDao, before.id, ++lastRev, snapshot, title, content.length(),
+                    snapshot ? ChunkCodec.encode(content) : delta, ContentHash.of(content), now);
+        }
+        added++;
+
+        prune(noteDao, before.id, revisions, added);
+        Metrics.recordSince("db.history.record.us", start);
+    }
+
+    /**
+     * Полный текст версии rev: ближайший снимок не новее rev и дельты после него.
+     * null, если такой версии нет.
+     */
+    @Nullable
+    public static String load(@NonNull NoteDao noteDao, long noteId, int rev) {
+        long start = Metrics.now();
+        List<NoteRevision> chain = noteDao.getRevisionChain(noteId, rev);
+        if (chain.isEmpty() || chain.get(chain.size() - 1).rev != rev) return null;
+
+        String text = ChunkCodec.decode(chain.get(0).data);
+        for (int i = 1; i < chain.size(); i++) {
+            text = TextDelta.apply(text, chain.get(i).data);
+        }
+        Metrics.recordSince("db.history.load.us", start);
+        return text;
+    }
+
+    /**
+     * Полный текст самой свежей версии с хэшем contentHash; null, если её уже (или ещё) нет в истории.
+     */
+    @Nullable
+    public static String loadByHash(@NonNull NoteDao noteDao, long noteId, long contentHash) {
+        for (NoteRevisionInfo info : noteDao.getRevisionInfos(noteId)) {
+            if (info.contentHash == contentHash) return load(noteDao, noteId, info.rev);
+        }
+        return null;
+    }
+
+    // Отрезает старые цепочки, пока остаётся не меньше MAX_REVISIONS версий
+    private static void prune(NoteDao noteDao, long noteId, List<NoteRevisionInfo> revisions, int added) {
+        int kept = added;
+        for (NoteRevisionInfo info : revisions) {
+            kept++;
+            if (info.snapshot && kept >= MAX_REVISIONS) {
+                int removed = noteDao.deleteRevisionsBefore(noteId, info.rev);
+                Metrics.add("db.history.pruned", removed);
+                return;
+            }
+        }
+    }
+
+    private static String fullContent(NoteDao noteDao, Note note) {
+        String content = noteDao.loadFullContent(note);
+        return content != null ? content : "";
+    }
+
+    private static void insert(NoteDao noteDao, long noteId, int rev, boolean snapshot, String title,
+                               int length, byte[] data, long contentHash, long createdAt) {
+        NoteRevision revision = new NoteRevision();
+        revision.noteId = noteId;
+        revision.rev = rev;
+        revision.snapshot = snapshot;
+        revision.title = title;
+        revision.data = data;
+        revision.length = length;
+        revision.contentHash = contentHash;
+        revision.createdAt = createdAt;
+        noteDao.insertRevision(revision);
+        Metrics.add("db.history.bytes", data.length);
+    }
+
+    private static boolean sameTitle(String a, String b) {
+        return a != null ? a.equals(b) : b == null;
+    }
+}
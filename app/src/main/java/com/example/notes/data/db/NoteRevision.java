@@ -0,0 +1,50 @@
+package com.example.notes.data.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+
+/**
+ * Версия заметки в истории правок (см. NoteHistory).
+ * Снимок (snapshot = 1) хранит полный текст в формате ChunkCodec,
+ * остальные версии — TextDelta от предыдущей. Удаляются вместе с заметкой.
+ */
+@Entity(
+        tableName = "note_revisions",
+        primaryKeys = {"note_id", "rev"},
+        foreignKeys = @ForeignKey(
+                entity = Note.class,
+                parentColumns = "id",
+                childColumns = "note_id",
+                onDelete = ForeignKey.CASCADE))
+public class NoteRevision {
+
+    @ColumnInfo(name = "note_id")
+    public long noteId;
+
+    // Номер версии внутри заметки, растёт с каждым сохранением
+    @ColumnInfo(name = "rev")
+    public int rev;
+
+    @ColumnInfo(name = "snapshot")
+    public boolean snapshot;
+
+    @ColumnInfo(name = "title")
+    public String title;
+
+    @NonNull
+    @ColumnInfo(name = "data")
+    public byte[] data = new byte[0];
+
+    // Длина полного текста версии в символах
+    @ColumnInfo(name = "length")
+    public int length;
+
+    // ContentHash полного текста — проверка, что следующая дельта строится от этой версии
+    @ColumnInfo(name = "content_hash")
+    public long contentHash;
+
+    @ColumnInfo(name = "created_at")
+    public long createdAt;
+}
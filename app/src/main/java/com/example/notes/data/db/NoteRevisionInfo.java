@@ -0,0 +1,31 @@
+package com.example.notes.data.db;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * Версия заметки без данных — для списка истории и решений NoteHistory.
+ */
+public class NoteRevisionInfo {
+
+    @ColumnInfo(name = "rev")
+    public int rev;
+
+    @ColumnInfo(name = "snapshot")
+    public boolean snapshot;
+
+    @ColumnInfo(name = "title")
+    public String title;
+
+    @ColumnInfo(name = "length")
+    public int length;
+
+    @ColumnInfo(name = "content_hash")
+    public long contentHash;
+
+    @ColumnInfo(name = "created_at")
+    public long createdAt;
+
+    // Сколько байт версия занимает в базе
+    @ColumnInfo(name = "size")
+    public int size;
+}
@@ -0,0 +1,31 @@
+package com.example.notes.data.db;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Ignore;
+
+/**
+ * Строка результата полнотекстового поиска: данные для списка,
+ * фрагмент текста вокруг совпадения и сырой matchinfo() для ранжирования.
+ */
+public class NoteSearchResult {
+
+    @ColumnInfo(name = "id")
+    public long id;
+
+    @ColumnInfo(name = "title")
+    public String title;
+
+    @ColumnInfo(name = "snippet")
+    public String snippet;
+
+    @ColumnInfo(name = "important")
+    public boolean important;
+
+    // matchinfo(notes_fts, 'pcx') — счётчики совпадений по фразам и колонкам
+    @ColumnInfo(name = "match_info", typeAffinity = ColumnInfo.BLOB)
+    public byte[] matchInfo;
+
+    // Вычисляется в NoteSearch, в базе не хранится
+    @Ignore
+    public double rank;
+}
@@ -0,0 +1,35 @@
+package com.example.notes.data.db;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * Облегчённая проекция заметки для строки списка.
+ * Содержит только то, что показывает item_note.xml: заголовок,
+ * превью текста (обрезается прямо в SQL) и флаг "Важно".
+ * Полное содержимое заметки грузится только на экране деталей.
+ */
+public class NoteSummary {
+
+    // Максимальная длина превью в символах (см. запросы в NoteDao)
+    public static final int PREVIEW_LENGTH = 200;
+
+    @ColumnInfo(name = "id")
+    public long id;
+
+    @ColumnInfo(name = "title")
+    public String title;
+
+    @ColumnInfo(name = "preview")
+    public String preview;
+
+    @ColumnInfo(name = "important")
+    public boolean important;
+
+    // Нужен как часть ключа страницы в сортировках по времени правки
+    @ColumnInfo(name = "updated_at")
+    public long updatedAt;
+
+    // Превью содержит текст заметки целиком (короткая заметка) — её можно открыть без запроса
+    @ColumnInfo(name = "complete")
+    public boolean complete;
+}
@@ -0,0 +1,205 @@
+package com.example.notes.data.db;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Дельта между двумя версиями текста: последовательность операций
+ * COPY (кусок старого текста по смещению) и INSERT (новый текст в UTF-8).
+ * Формат: [длина старого][длина нового] затем операции; числа — varint, длины в символах.
+ *
+ * Общие начало и конец отрезаются сразу, середина сравнивается блоками по BLOCK символов
+ * (кольцевой хэш нового текста по индексу блоков старого), поэтому размер дельты
+ * растёт с объёмом правки, а не с длиной заметки, — в том числе при нескольких
+ * разнесённых правках и перестановке абзацев.
+ * Границы операций не разрезают суррогатные пары: INSERT всегда кодируется в UTF-8 без потерь.
+ */
+public final class TextDelta {
+
+    private static final int OP_COPY = 0;
+    private static final int OP_INSERT = 1;
+
+    private static final int BLOCK = 16;
+    private static final int HASH_BASE = 31;
+    private static final int HASH_POW;
+
+    static {
+        int pow = 1;
+        for (int i = 1; i < BLOCK; i++) pow *= HASH_BASE;
+        HASH_POW = pow;
+    }
+
+    private TextDelta() {
+    }
+
+    @NonNull
+    public static byte[] diff(@NonNull String before, @NonNull String after) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, before.length());
+        writeVarint(out, after.length());
+
+        int max = Math.min(before.length(), after.length());
+        int prefix = 0;
+        while (prefix < max && before.charAt(prefix) == after.charAt(prefix)) prefix++;
+        prefix = safeBoundary(after, prefix, -1);
+
+        int suffix = 0;
+        while (suffix < max - prefix
+                && before.charAt(before.length() - 1 - suffix) == after.charAt(after.length() - 1 - suffix)) {
+            suffix++;
+        }
+        suffix = after.length() - safeBoundary(after, after.length() - suffix, +1);
+
+        if (prefix > 0) writeCopy(out, 0, prefix);
+        diffMiddle(out, before, prefix, before.length() - suffix, after, prefix, after.length() - suffix);
+        if (suffix > 0) writeCopy(out, before.length() - suffix, suffix);
+        return out.toByteArray();
+    }
+
+    // Дельта «текст не изменился» — строится по одной длине, без самого текста
+    @NonNull
+    static byte[] unchanged(int length) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, length);
+        writeVarint(out, length);
+        writeCopy(out, 0, length);
+        return out.toByteArray();
+    }
+
+    @NonNull
+    public static String apply(@NonNull String before, @NonNull byte[] delta) {
+        int[] pos = {0};
+        int beforeLength = readVarint(delta, pos);
+        int afterLength = readVarint(delta, pos);
+        if (beforeLength != before.length()) {
+            throw new IllegalStateException("Дельта не к этой версии текста: "
+                    + beforeLength + " вместо " + before.length() + " символов");
+        }
+
+        StringBuilder text = new StringBuilder(afterLength);
+        while (pos[0] < delta.length) {
+            int op = delta[pos[0]++];
+            if (op == OP_COPY) {
+                int offset = readVarint(delta, pos);
+                int length = readVarint(delta, pos);
+                text.append(before, offset, offset + length);
+            } else if (op == OP_INSERT) {
+                int bytes = readVarint(delta, pos);
+                text.append(new String(delta, pos[0], bytes, StandardCharsets.UTF_8));
+                pos[0] += bytes;
+            } else {
+                throw new IllegalStateException("Неизвестная операция дельты: " + op);
+            }
+        }
+        if (text.length() != afterLength) {
+            throw new IllegalStateException("Дельта повреждена: " + text.length() + " из " + afterLength + " символов");
+        }
+        return text.toString();
+    }
+
+    // Середина: совпадающие блоки копируем из старого текста, остальное вставляем
+    private static void diffMiddle(ByteArrayOutputStream out, String before, int beforeStart, int beforeEnd,
+                                   String after, int afterStart, int afterEnd) {
+        if (beforeEnd - beforeStart < BLOCK || afterEnd - afterStart < BLOCK) {
+            writeInsert(out, after, afterStart, afterEnd);
+            return;
+        }
+
+        // Индекс выровненных блоков старого текста: хэш → первое смещение
+        Map<Integer, Integer> blocks = new HashMap<>();
+        for (int offset = beforeStart; offset + BLOCK <= beforeEnd; offset += BLOCK) {
+            blocks.putIfAbsent(hash(before, offset), offset);
+        }
+
+        int pending = afterStart;  // начало ещё не записанной вставки
+        int i = afterStart;
+        int h = hash(after, i);
+        while (i + BLOCK <= afterEnd) {
+            Integer found = blocks.get(h);
+            if (found != null && before.regionMatches(found, after, i, BLOCK)) {
+                // Расширяем совпадение назад (в пределах вставки) и вперёд
+                int start = i;
+                int from = found;
+                while (start > pending && from > beforeStart && after.charAt(start - 1) == before.charAt(from - 1)) {
+                    start--;
+                    from--;
+                }
+                int end = i + BLOCK;
+                int to = found + BLOCK;
+                while (end < afterEnd && to < beforeEnd && after.charAt(end) == before.charAt(to)) {
+                    end++;
+                    to++;
+                }
+                int safeStart = safeBoundary(after, start, +1);
+                from += safeStart - start;
+                end = safeBoundary(after, end, -1);
+
+                writeInsert(out, after, pending, safeStart);
+                writeCopy(out, from, end - safeStart);
+                pending = end;
+                i = end;
+                if (i + BLOCK <= afterEnd) h = hash(after, i);
+                continue;
+            }
+            if (i + BLOCK < afterEnd) {
+                h = (h - after.charAt(i) * HASH_POW) * HASH_BASE + after.charAt(i + BLOCK);
+            }
+            i++;
+        }
+        writeInsert(out, after, pending, afterEnd);
+    }
+
+    private static int hash(String text, int offset) {
+        int h = 0;
+        for (int i = offset; i < offset + BLOCK; i++) {
+            h = h * HASH_BASE + text.charAt(i);
+        }
+        return h;
+    }
+
+    // Граница между половинками суррогатной пары сдвигается на символ в сторону direction
+    private static int safeBoundary(String text, int index, int direction) {
+        if (index > 0 && index < text.length()
+                && Character.isHighSurrogate(text.charAt(index - 1))
+                && Character.isLowSurrogate(text.charAt(index))) {
+            return index + direction;
+        }
+        return index;
+    }
+
+    private static void writeCopy(ByteArrayOutputStream out, int offset, int length) {
+        if (length <= 0) return;
+        out.write(OP_COPY);
+        writeVarint(out, offset);
+        writeVarint(out, length);
+    }
+
+    private static void writeInsert(ByteArrayOutputStream out, String text, int start, int end) {
+        if (end <= start) return;
+        byte[] bytes = text.substring(start, end).getBytes(StandardCharsets.UTF_8);
+        out.write(OP_INSERT);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] pos) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.notes.data.db;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+
+/**
+ * Строка триграммного индекса заголовков: заметка note_id содержит триграмму (см. Trigrams).
+ * Первичный ключ (trigram, note_id) — списки заметок по триграмме и точечные проверки;
+ * индекс по note_id — для переиндексации заголовка и каскадного удаления вместе с заметкой.
+ */
+@Entity(
+        tableName = "title_trigrams",
+        primaryKeys = {"trigram", "note_id"},
+        foreignKeys = @ForeignKey(
+                entity = Note.class,
+                parentColumns = "id",
+                childColumns = "note_id",
+                onDelete = ForeignKey.CASCADE),
+        indices = @Index(value = {"note_id"}))
+public class TitleTrigram {
+
+    @ColumnInfo(name = "trigram")
+    public long trigram;
+
+    @ColumnInfo(name = "note_id")
+    public long noteId;
+}
@@ -0,0 +1,20 @@
+package com.example.notes.data.db;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Сколько заголовков содержит триграмму. Ведётся триггерами на title_trigrams
+ * (см. TitleTrigramIndex); поиск начинает отбор кандидатов с самых редких триграмм запроса.
+ */
+@Entity(tableName = "title_trigram_counts")
+public class TitleTrigramCount {
+
+    @PrimaryKey
+    @ColumnInfo(name = "trigram")
+    public long trigram;
+
+    @ColumnInfo(name = "count")
+    public int count;
+}
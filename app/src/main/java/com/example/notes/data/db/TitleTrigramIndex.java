@@ -0,0 +1,50 @@
+package com.example.notes.data.db;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+/**
+ * Обслуживание триграммного индекса заголовков title_trigrams.
+ * Строки индекса пишет NoteDao.indexTitle при каждой записи заголовка (SQL не умеет
+ * резать строку на триграммы в триггере), а счётчики title_trigram_counts ведут триггеры
+ * на самой таблице индекса — они срабатывают и при каскадном удалении вместе с заметкой.
+ * install идемпотентен, вызывается при создании и каждом открытии базы.
+ */
+public final class TitleTrigramIndex {
+
+    private TitleTrigramIndex() {
+    }
+
+    public static void install(@NonNull SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS title_trigrams_AFTER_INSERT "
+                + "AFTER INSERT ON `title_trigrams` BEGIN "
+                + "INSERT OR IGNORE INTO `title_trigram_counts`(`trigram`, `count`) VALUES (NEW.`trigram`, 0); "
+                + "UPDATE `title_trigram_counts` SET `count` = `count` + 1 WHERE `trigram` = NEW.`trigram`; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS title_trigrams_AFTER_DELETE "
+                + "AFTER DELETE ON `title_trigrams` BEGIN "
+                + "UPDATE `title_trigram_counts` SET `count` = `count` - 1 WHERE `trigram` = OLD.`trigram`; END");
+    }
+
+    /**
+     * Заново строит индекс по всем заметкам (миграция, заметки, вставленные прямым SQL).
+     */
+    public static void rebuild(@NonNull SupportSQLiteDatabase db) {
+        db.execSQL("DELETE FROM `title_trigrams`");
+        db.execSQL("DELETE FROM `title_trigram_counts`");
+        SupportSQLiteStatement insert = db.compileStatement(
+                "INSERT OR IGNORE INTO `title_trigrams`(`trigram`, `note_id`) VALUES (?, ?)");
+        try (Cursor cursor = db.query("SELECT id, title FROM notes")) {
+            while (cursor.moveToNext()) {
+                long noteId = cursor.getLong(0);
+                for (long trigram : Trigrams.ofTitle(cursor.getString(1))) {
+                    insert.bindLong(1, trigram);
+                    insert.bindLong(2, noteId);
+                    insert.executeInsert();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.notes.data.db;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * Сколько триграмм запроса нашлось в заголовке заметки.
+ */
+public class TrigramMatch {
+
+    @ColumnInfo(name = "note_id")
+    public long noteId;
+
+    @ColumnInfo(name = "shared")
+    public int shared;
+}
@@ -0,0 +1,87 @@
+package com.example.notes.data.db;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Триграммы заголовков для поиска по фрагментам слов и с опечатками.
+ * Текст приводится к нижнему регистру, ё → е, всё, кроме букв и цифр, разделяет слова.
+ * Триграмма — три соседних символа, упакованные в long (по 16 бит на символ).
+ *
+ * В индекс слово попадает с пробелом по краям ("молоко" → " мо", "мол", ..., "ко "),
+ * поэтому и короткие слова получают триграммы. В запросе края не добавляются
+ * (слово может быть серединой слова заголовка или ещё не допечатано),
+ * кроме слов короче трёх символов — они ищутся как начало слова.
+ */
+public final class Trigrams {
+
+    private static final long[] EMPTY = new long[0];
+
+    private Trigrams() {
+    }
+
+    /**
+     * Триграммы заголовка для индекса, без повторов.
+     */
+    @NonNull
+    public static long[] ofTitle(@Nullable String title) {
+        Set<Long> trigrams = new LinkedHashSet<>();
+        for (String word : words(title)) {
+            addAll(trigrams, " " + word + " ");
+        }
+        return toArray(trigrams);
+    }
+
+    /**
+     * Триграммы поискового запроса, без повторов.
+     */
+    @NonNull
+    public static long[] ofQuery(@Nullable String query) {
+        Set<Long> trigrams = new LinkedHashSet<>();
+        for (String word : words(query)) {
+            addAll(trigrams, word.length() < 3 ? " " + word : word);
+        }
+        return toArray(trigrams);
+    }
+
+    /**
+     * Нормализованный текст: слова через один пробел (для проверки вхождения запроса в заголовок).
+     */
+    @NonNull
+    public static String normalize(@Nullable String text) {
+        return String.join(" ", words(text));
+    }
+
+    private static String[] words(@Nullable String text) {
+        if (text == null || text.isEmpty()) return new String[0];
+        StringBuilder clean = new StringBuilder(text.length());
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (c == 'ё') c = 'е';
+            clean.append(Character.isLetterOrDigit(c) ? c : ' ');
+        }
+        String trimmed = clean.toString().trim();
+        return trimmed.isEmpty() ? new String[0] : trimmed.split(" +");
+    }
+
+    private static void addAll(Set<Long> into, String padded) {
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            into.add((long) padded.charAt(i) << 32 | (long) padded.charAt(i + 1) << 16 | padded.charAt(i + 2));
+        }
+    }
+
+    private static long[] toArray(Set<Long> trigrams) {
+        if (trigrams.isEmpty()) return EMPTY;
+        long[] result = new long[trigrams.size()];
+        int i = 0;
+        for (long trigram : trigrams) {
+            result[i++] = trigram;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.notes.data.io;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+
+import androidx.annotation.NonNull;
+
+import com.example.notes.data.db.ContentHash;
+import com.example.notes.data.db.Note;
+import com.example.notes.data.db.NoteChange;
+import com.example.notes.data.db.NoteDao;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Потоковый импорт и экспорт заметок в формате NDJSON — одна заметка JSON-объектом на строку:
+ * {"title": "...", "content": "...", "important": false, "created_at": 0, "updated_at": 0}
+ * Время — в мс с эпохи; в старых архивах его нет, тогда заметка получает время импорта.
+ * И чтение, и запись идут порциями, поэтому память не зависит от размера архива.
+ * Инкрементальная выгрузка (exportChangesTo) пишет только изменения из журнала note_changes
+ * после контрольной точки: изменённые заметки — с полями "id", "seq" и "content_hash",
+ * удалённые — строкой {"id": 1, "seq": 2, "deleted": true}.
+ * Такой файл не импортируется: id в нём — локальные id выгрузившего устройства,
+ * и importFrom отвергает записи с "seq" или "deleted", не вставив ни одной заметки.
+ */
+public final class NoteArchive {
+
+    // Сколько заметок вставляем одной транзакцией при импорте
+    public static final int IMPORT_CHUNK_SIZE = 500;
+
+    // Сколько заметок читаем из базы за один запрос при экспорте
+    private static final int EXPORT_PAGE_SIZE = 100;
+
+    /**
+     * Прогресс операции: сколько заметок уже обработано (вызывается на рабочем потоке).
+     */
+    public interface Progress {
+        void onProgress(int processed);
+    }
+
+    /**
+     * Получатель порций при импорте — записывает порцию в базу.
+     */
+    public interface ChunkSink {
+        void insert(@NonNull List<Note> chunk) throws IOException;
+    }
+
+    private NoteArchive() {
+    }
+
+    /**
+     * Пишет все заметки в поток, читая базу страницами по id.
+     * Поток не закрывает. Возвращает количество выгруженных заметок.
+     */
+    public static int exportTo(@NonNull NoteDao noteDao, @NonNull OutputStream out,
+                               @NonNull Progress progress) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        JsonWriter json = new JsonWriter(writer);
+        json.setLenient(true);  // несколько JSON-значений верхнего уровня подряд
+
+        int exported = 0;
+        long afterId = 0;
+        List<Note> page;
+        while (!(page = noteDao.getNotesAfter(afterId, EXPORT_PAGE_SIZE)).isEmpty()) {
+            for (Note note : page) {
+                // Большие заметки хранятся кусками — в архив пишем полный текст
+                note.content = noteDao.loadFullContent(note);
+                writeNote(json, note);
+                json.flush();
+                writer.write('\n');
+            }
+            afterId = page.get(page.size() - 1).id;
+            exported += page.size();
+            progress.onProgress(exported);
+        }
+        writer.flush();
+        return exported;
+    }
+
+    /**
+     * Пишет в поток изменения с номером больше afterSeq, читая журнал страницами.
+     * Стоимость пропорциональна числу изменённых заметок, а не размеру базы.
+     * Поток не закрывает. Возвращает seq последнего выгруженного изменения
+     * (новая контрольная точка) или afterSeq, если изменений не было.
+     */
+    public static long exportChangesTo(@NonNull NoteDao noteDao, @NonNull OutputStream out, long afterSeq,
+                                       @NonNull Progress progress) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        JsonWriter json = new JsonWriter(writer);
+        json.setLenient(true);
+
+        int exported = 0;
+        long lastSeq = afterSeq;
+        List<NoteChange> changes;
+        while (!(changes = noteDao.getChangesAfter(lastSeq, EXPORT_PAGE_SIZE)).isEmpty()) {
+            Map<Long, Note> notes = loadChanged(noteDao, changes);
+            for (NoteChange change : changes) {
+                Note note = notes.get(change.noteId);
+                if (NoteChange.OP_DELETE.equals(change.op) || note == null || note.deletedAt != 0) {
+                    writeDeleted(json, change);
+                } else {
+                    note.content = noteDao.loadFullContent(note);
+                    if (note.contentHash == ContentHash.UNKNOWN) {
+                        note.contentHash = ContentHash.of(note.content);  // заметка старше хэшей
+                    }
+                    writeChanged(json, note, change.seq);
+                }
+                json.flush();
+                writer.write('\n');
+            }
+            lastSeq = changes.get(changes.size() - 1).seq;
+            exported += changes.size();
+            progress.onProgress(exported);
+        }
+        writer.flush();
+        return lastSeq;
+    }
+
+    // Заметки страницы журнала одним запросом
+    private static Map<Long, Note> loadChanged(NoteDao noteDao, List<NoteChange> changes) {
+        List<Long> ids = new ArrayList<>(changes.size());
+        for (NoteChange change : changes) {
+            if (NoteChange.OP_UPSERT.equals(change.op)) ids.add(change.noteId);
+        }
+        Map<Long, Note> notes = new HashMap<>();
+        if (ids.isEmpty()) return notes;
+        for (Note note : noteDao.getByIds(ids)) {
+            notes.put(note.id, note);
+        }
+        return notes;
+    }
+
+    /**
+     * Читает заметки из потока и отдаёт их порциями по IMPORT_CHUNK_SIZE.
+     * Неизвестные поля пропускаются; заметка без текста получает пустой текст.
+     * Запись инкрементальной выгрузки — IOException (файл изменений — не архив заметок).
+     * Возвращает количество импортированных заметок.
+     */
+    public static int importFrom(@NonNull InputStream in, @NonNull ChunkSink sink,
+                                 @NonNull Progress progress) throws IOException {
+        JsonReader json = new JsonReader(
+                new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        json.setLenient(true);
+
+        int imported = 0;
+        List<Note> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        while (json.peek() != JsonToken.END_DOCUMENT) {
+            chunk.add(readNote(json));
+            if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                sink.insert(chunk);
+                imported += chunk.size();
+                progress.onProgress(imported);
+                chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            sink.insert(chunk);
+            imported += chunk.size();
+            progress.onProgress(imported);
+        }
+        return imported;
+    }
+
+    private static void writeNote(JsonWriter json, Note note) throws IOException {
+        json.beginObject();
+        json.name("title").value(note.title);
+        json.name("content").value(note.content);
+        json.name("important").value(note.important);
+        json.name("created_at").value(note.createdAt);
+        json.name("updated_at").value(note.updatedAt);
+        json.endObject();
+    }
+
+    private static void writeChanged(JsonWriter json, Note note, long seq) throws IOException {
+        json.beginObject();
+        json.name("id").value(note.id);
+        json.name("seq").value(seq);
+        json.name("title").value(note.title);
+        json.name("content").value(note.content);
+        json.name("important").value(note.important);
+        json.name("created_at").value(note.createdAt);
+        json.name("updated_at").value(note.updatedAt);
+        json.name("content_hash").value(Long.toHexString(note.contentHash));
+        json.endObject();
+    }
+
+    private static void writeDeleted(JsonWriter json, NoteChange change) throws IOException {
+        json.beginObject();
+        json.name("id").value(change.noteId);
+        json.name("seq").value(change.seq);
+        json.name("deleted").value(true);
+        json.endObject();
+    }
+
+    private static Note readNote(JsonReader json) throws IOException {
+        Note note = new Note();
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if ("seq".equals(name) || "deleted".equals(name)) {
+                throw new IOException("Это файл изменений, а не архив заметок — его нельзя импортировать");
+            }
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "title":
+                    note.title = json.nextString();
+                    break;
+                case "content":
+                    note.content = json.nextString();
+                    break;
+                case "important":
+                    note.important = json.nextBoolean();
+                    break;
+                case "created_at":
+                    note.createdAt = json.nextLong();
+                    break;
+                case "updated_at":
+                    note.updatedAt = json.nextLong();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+        if (note.content == null) note.content = "";
+        return note;
+    }
+}
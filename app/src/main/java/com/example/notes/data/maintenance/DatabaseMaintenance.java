@@ -0,0 +1,177 @@
+package com.example.notes.data.maintenance;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.example.notes.data.db.AppDatabase;
+import com.example.notes.data.db.DatabaseTuning;
+import com.example.notes.data.db.NoteDao;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Обслуживание notes_db: очистка надгробий удалённых заметок, checkpoint WAL, инкрементальный VACUUM,
+ * слияние сегментов FTS и обновление статистики планировщика (ANALYZE / PRAGMA optimize).
+ * До и после замеряет размер файлов и время типичных запросов,
+ * пишет отчёт в лог и в настройки "db_maintenance".
+ * Вызывать только на фоновом потоке.
+ */
+public final class DatabaseMaintenance {
+
+    private static final String TAG = "DbMaintenance";
+    private static final String PREFS = "db_maintenance";
+    private static final String DB_NAME = "notes_db";
+
+    // auto_vacuum = INCREMENTAL: свободные страницы можно отдавать ОС без полного VACUUM
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    // Сколько раз повторяем пробные запросы при замере (берём медиану)
+    private static final int PROBE_RUNS = 5;
+
+    /**
+     * Результат одного прогона.
+     */
+    public static final class Report {
+        public long fileBytesBefore;
+        public long fileBytesAfter;
+        public long freePagesBefore;
+        public long freePagesAfter;
+        public long probeMicrosBefore;
+        public long probeMicrosAfter;
+        public long durationMs;
+        public int purgedNotes;      // стёрто мягко удалённых заметок
+        public boolean fullVacuum;   // база переведена на incremental auto_vacuum полным VACUUM
+        public boolean completed;    // не прерван системой
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "file " + fileBytesBefore + " → " + fileBytesAfter + " B, "
+                    + "free pages " + freePagesBefore + " → " + freePagesAfter + ", "
+                    + "probe " + probeMicrosBefore + " → " + probeMicrosAfter + " µs, "
+                    + "purged " + purgedNotes + ", took " + durationMs + " ms"
+                    + (fullVacuum ? ", full VACUUM" : "")
+                    + (completed ? "" : ", interrupted");
+        }
+    }
+
+    private DatabaseMaintenance() {
+    }
+
+    /**
+     * Выполняет обслуживание. stopRequested проверяется между шагами —
+     * если система отозвала задачу, оставшиеся шаги пропускаются.
+     */
+    @NonNull
+    public static Report run(@NonNull Context context, @NonNull BooleanSupplier stopRequested) {
+        AppDatabase appDb = AppDatabase.getInstance(context);
+        SupportSQLiteDatabase db = appDb.getOpenHelper().getWritableDatabase();
+        NoteDao noteDao = appDb.noteDao();
+        File dbFile = context.getDatabasePath(DB_NAME);
+
+        Report report = new Report();
+        long start = SystemClock.elapsedRealtime();
+
+        report.fileBytesBefore = fileBytes(dbFile);
+        report.freePagesBefore = DatabaseTuning.pragmaLong(db, "PRAGMA freelist_count");
+        report.probeMicrosBefore = probe(noteDao);
+
+        report.completed = runSteps(db, noteDao, stopRequested, report);
+
+        report.fileBytesAfter = fileBytes(dbFile);
+        report.freePagesAfter = DatabaseTuning.pragmaLong(db, "PRAGMA freelist_count");
+        report.probeMicrosAfter = probe(noteDao);
+        report.durationMs = SystemClock.elapsedRealtime() - start;
+
+        save(context, report);
+        return report;
+    }
+
+    /**
+     * Шаги обслуживания. Возвращает false, если прервались по stopRequested.
+     */
+    private static boolean runSteps(SupportSQLiteDatabase db, NoteDao noteDao,
+                                    BooleanSupplier stopRequested, Report report) {
+        // Стираем надгробия порциями (каждая — своя короткая транзакция) до VACUUM,
+        // чтобы освободившиеся страницы сразу вернулись ОС
+        long deletedBefore = System.currentTimeMillis() - NoteDao.TOMBSTONE_TTL_MS;
+        int purged;
+        do {
+            purged = noteDao.purgeDeleted(deletedBefore, NoteDao.PURGE_BATCH_SIZE);
+            report.purgedNotes += purged;
+            if (stopRequested.getAsBoolean()) return false;
+        } while (purged == NoteDao.PURGE_BATCH_SIZE);
+
+        // Переносим WAL в основной файл и обрезаем его
+        DatabaseTuning.pragma(db, "PRAGMA wal_checkpoint(TRUNCATE)");
+        if (stopRequested.getAsBoolean()) return false;
+
+        if (DatabaseTuning.pragmaLong(db, "PRAGMA auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+            // Один раз: смена режима auto_vacuum вступает в силу только после полного VACUUM
+            DatabaseTuning.pragma(db, "PRAGMA auto_vacuum = INCREMENTAL");
+            db.execSQL("VACUUM");
+            report.fullVacuum = true;
+        } else {
+            DatabaseTuning.pragma(db, "PRAGMA incremental_vacuum");
+        }
+        if (stopRequested.getAsBoolean()) return false;
+
+        // Сливаем сегменты полнотекстового индекса в один
+        db.execSQL("INSERT INTO notes_fts(notes_fts) VALUES('optimize')");
+        db.execSQL("INSERT INTO notes_body_fts(notes_body_fts) VALUES('optimize')");
+        if (stopRequested.getAsBoolean()) return false;
+
+        db.execSQL("ANALYZE");
+        DatabaseTuning.pragma(db, "PRAGMA optimize");
+
+        // VACUUM и optimize писали через WAL — ещё раз сбрасываем его
+        DatabaseTuning.pragma(db, "PRAGMA wal_checkpoint(TRUNCATE)");
+        return true;
+    }
+
+    /**
+     * Медиана времени пары типичных запросов: первая страница списка и подсчёт заметок.
+     */
+    private static long probe(NoteDao noteDao) {
+        long[] micros = new long[PROBE_RUNS];
+        for (int i = 0; i < PROBE_RUNS; i++) {
+            long t0 = System.nanoTime();
+            noteDao.getFirstPage(50);
+            noteDao.count();
+            micros[i] = (System.nanoTime() - t0) / 1000;
+        }
+        Arrays.sort(micros);
+        return micros[PROBE_RUNS / 2];
+    }
+
+    // Основной файл базы плюс WAL
+    private static long fileBytes(File dbFile) {
+        File wal = new File(dbFile.getPath() + "-wal");
+        return dbFile.length() + (wal.exists() ? wal.length() : 0);
+    }
+
+    private static void save(Context context, Report report) {
+        Log.i(TAG, "Обслуживание базы: " + report);
+
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        prefs.edit()
+                .putLong("last_run_at", System.currentTimeMillis())
+                .putLong("file_bytes_before", report.fileBytesBefore)
+                .putLong("file_bytes_after", report.fileBytesAfter)
+                .putLong("free_pages_before", report.freePagesBefore)
+                .putLong("free_pages_after", report.freePagesAfter)
+                .putLong("probe_us_before", report.probeMicrosBefore)
+                .putLong("probe_us_after", report.probeMicrosAfter)
+                .putLong("duration_ms", report.durationMs)
+                .putInt("purged_notes", report.purgedNotes)
+                .putBoolean("completed", report.completed)
+                .apply();
+    }
+}
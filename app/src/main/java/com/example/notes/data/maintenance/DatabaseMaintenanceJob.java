@@ -0,0 +1,68 @@
+package com.example.notes.data.maintenance;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Периодическая задача обслуживания базы (см. DatabaseMaintenance).
+ * Запускается раз в сутки, только когда устройство простаивает и заряжается, —
+ * VACUUM блокирует записи, и пользователь не должен этого заметить.
+ */
+public class DatabaseMaintenanceJob extends JobService {
+
+    private static final String TAG = "DbMaintenance";
+    private static final int JOB_ID = 1013;
+
+    private volatile boolean stopRequested;
+
+    /**
+     * Планирует задачу, если она ещё не запланирована (вызывается при старте приложения).
+     */
+    public static void schedule(@NonNull Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        if (scheduler == null || scheduler.getPendingJob(JOB_ID) != null) return;
+
+        JobInfo job = new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, DatabaseMaintenanceJob.class))
+                .setPeriodic(TimeUnit.DAYS.toMillis(1))
+                .setRequiresDeviceIdle(true)
+                .setRequiresCharging(true)
+                .setPersisted(false)
+                .build();
+        scheduler.schedule(job);
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        stopRequested = false;
+        Thread thread = new Thread(() -> {
+            boolean reschedule = false;
+            try {
+                DatabaseMaintenance.Report report =
+                        DatabaseMaintenance.run(getApplicationContext(), () -> stopRequested);
+                reschedule = !report.completed;
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Обслуживание базы не удалось", e);
+            }
+            jobFinished(params, reschedule);
+        }, "notes-db-maintenance");
+        thread.start();
+        return true;  // работа продолжается в фоне
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Система отзывает задачу — прерываемся между шагами и просим повторить позже
+        stopRequested = true;
+        return true;
+    }
+}
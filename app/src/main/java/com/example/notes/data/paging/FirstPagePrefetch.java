@@ -0,0 +1,85 @@
+package com.example.notes.data.paging;
+
+import android.os.Trace;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.notes.data.db.NoteDao;
+import com.example.notes.data.db.NoteSummary;
+import com.example.notes.metrics.Metrics;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Первая страница списка, прочитанная заранее — при старте процесса,
+ * параллельно с созданием MainActivity. Заодно это первое обращение к базе:
+ * открытие файла и проверка схемы Room не попадают на путь к первому кадру.
+ * Источник страниц забирает её один раз вместо собственного первого запроса.
+ */
+public final class FirstPagePrefetch {
+
+    private final AtomicReference<FutureTask<List<NoteSummary>>> pending = new AtomicReference<>();
+    private final LongSupplier writeEpoch;
+    private volatile long startEpoch;
+    private volatile NoteSort sort;
+
+    /**
+     * @param writeEpoch счётчик закоммиченных записей — если он сдвинулся,
+     *                   заготовленная страница могла устареть
+     */
+    public FirstPagePrefetch(@NonNull LongSupplier writeEpoch) {
+        this.writeEpoch = writeEpoch;
+    }
+
+    /**
+     * Запускает чтение первой страницы в выбранном порядке (повторные вызовы игнорируются).
+     */
+    public void start(@NonNull NoteDao noteDao, @NonNull NoteSort sort, @NonNull Executor executor) {
+        FutureTask<List<NoteSummary>> task = new FutureTask<>(() -> {
+            Trace.beginSection("FirstPagePrefetch");
+            try {
+                // Включает открытие базы — поэтому отдельная метрика
+                long start = Metrics.now();
+                List<NoteSummary> page = sort.first(noteDao, NoteKeysetPagingSource.INITIAL_LOAD_SIZE);
+                Metrics.recordQuery("prefetch.first", start, page.size(), Metrics.summaryBytes(page));
+                return page;
+            } finally {
+                Trace.endSection();
+            }
+        });
+        if (pending.compareAndSet(null, task)) {
+            startEpoch = writeEpoch.getAsLong();
+            this.sort = sort;
+            executor.execute(task);
+        }
+    }
+
+    /**
+     * Забирает заготовленную страницу, дождавшись её чтения.
+     * Возвращает null, если заготовки нет, она уже забрана, другого размера или порядка,
+     * или после её чтения в базу что-то записали. Вызывать на фоновом потоке.
+     */
+    @Nullable
+    List<NoteSummary> take(@NonNull NoteSort sort, int limit) {
+        FutureTask<List<NoteSummary>> task = pending.getAndSet(null);
+        if (task == null || sort != this.sort || limit != NoteKeysetPagingSource.INITIAL_LOAD_SIZE) {
+            return null;
+        }
+
+        try {
+            List<NoteSummary> page = task.get();
+            return writeEpoch.getAsLong() == startEpoch ? page : null;
+        } catch (ExecutionException e) {
+            return null;  // источник прочитает страницу сам и получит ту же ошибку честно
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
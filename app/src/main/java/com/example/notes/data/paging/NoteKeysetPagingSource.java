@@ -0,0 +1,191 @@
+package com.example.notes.data.paging;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.ListenableFuturePagingSource;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingState;
+import androidx.room.InvalidationTracker;
+
+import com.example.notes.data.NoteCache;
+import com.example.notes.data.db.NoteDao;
+import com.example.notes.data.db.NoteSummary;
+import com.example.notes.metrics.Metrics;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import kotlin.Unit;
+
+/**
+ * Источник страниц для списка заметок с keyset-пагинацией в порядке NoteSort.
+ * Ключ страницы — колонки сортировки заметки, от которой читается следующая порция,
+ * поэтому каждая страница — это индексный диапазон без OFFSET,
+ * и время загрузки не зависит от размера таблицы.
+ * Источник следит за таблицей notes через InvalidationTracker Room:
+ * любая запись в неё инвалидирует источник, и пейджер перечитывает
+ * только окно вокруг текущей позиции, а DiffUtil обновляет изменённые строки.
+ * Короткие заметки, у которых превью совпадает с полным текстом, попутно
+ * попадают в NoteCache — экран деталей открывает их без запроса к базе.
+ */
+public class NoteKeysetPagingSource extends ListenableFuturePagingSource<NotePageKey, NoteSummary> {
+
+    // Размер страницы и расстояние до края списка, на котором начинается подгрузка
+    public static final int PAGE_SIZE = 50;
+    public static final int PREFETCH_DISTANCE = 30;
+    public static final int INITIAL_LOAD_SIZE = PAGE_SIZE * 2;
+
+    // Сколько элементов максимум держим в памяти — лишние страницы выгружаются с дальнего края
+    public static final int MAX_SIZE = PAGE_SIZE * 6;
+
+    private final NoteDao noteDao;
+    private final NoteSort sort;
+    private final InvalidationTracker invalidationTracker;
+    private final Executor executor;
+    private final NoteCache noteCache;
+    private final FirstPagePrefetch firstPagePrefetch;
+
+    // Сменилась сортировка: позиция в старом порядке новому источнику не передаётся
+    private volatile boolean restartFromTop;
+
+    // Подписка на изменения таблицы — регистрируется при первой загрузке, на фоновом потоке,
+    // и снимается при любой инвалидации источника (запись в notes, смена сортировки, refresh)
+    private final AtomicBoolean observerRegistered = new AtomicBoolean(false);
+    private final InvalidationTracker.Observer tableObserver = new InvalidationTracker.Observer("notes") {
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            invalidate();
+        }
+    };
+
+    public NoteKeysetPagingSource(
+            @NonNull NoteDao noteDao,
+            @NonNull NoteSort sort,
+            @NonNull InvalidationTracker invalidationTracker,
+            @NonNull Executor executor,
+            @NonNull NoteCache noteCache,
+            @NonNull FirstPagePrefetch firstPagePrefetch) {
+        this.noteDao = noteDao;
+        this.sort = sort;
+        this.invalidationTracker = invalidationTracker;
+        this.executor = executor;
+        this.noteCache = noteCache;
+        this.firstPagePrefetch = firstPagePrefetch;
+        registerInvalidatedCallback(() -> {
+            invalidationTracker.removeObserver(tableObserver);
+            return Unit.INSTANCE;
+        });
+    }
+
+    /**
+     * Конфигурация пейджера для списка заметок (без плейсхолдеров,
+     * с ограничением количества элементов в памяти).
+     */
+    @NonNull
+    public static PagingConfig createConfig() {
+        return new PagingConfig(PAGE_SIZE, PREFETCH_DISTANCE, false, INITIAL_LOAD_SIZE, MAX_SIZE);
+    }
+
+    /**
+     * Инвалидирует источник так, чтобы следующий читал список с начала
+     * (ключ из другого порядка сортировки к нему не подходит).
+     */
+    public void invalidateFromTop() {
+        restartFromTop = true;
+        invalidate();
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<LoadResult<NotePageKey, NoteSummary>> loadFuture(
+            @NonNull LoadParams<NotePageKey> params) {
+        ListenableFutureTask<LoadResult<NotePageKey, NoteSummary>> task =
+                ListenableFutureTask.create(() -> load(params));
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * Загружает одну страницу на фоновом потоке.
+     * Append — заметки старше ключа, Prepend — новее ключа, Refresh — начиная с ключа включительно.
+     */
+    private LoadResult<NotePageKey, NoteSummary> load(LoadParams<NotePageKey> params) {
+        // addObserver синхронизирует триггеры Room с базой, поэтому не на главном потоке.
+        // Уже инвалидированный источник не подписываем: его колбэк отработал и наблюдателя не снимет
+        if (!getInvalid() && observerRegistered.compareAndSet(false, true)) {
+            invalidationTracker.addObserver(tableObserver);
+            // Инвалидация могла проскочить между проверкой и подпиской
+            if (getInvalid()) {
+                invalidationTracker.removeObserver(tableObserver);
+            }
+        }
+        if (getInvalid()) {
+            return new LoadResult.Invalid<>();
+        }
+
+        NotePageKey key = params.getKey();
+        int limit = params.getLoadSize();
+        long cacheEpoch = noteCache.epoch();
+        String metric = sort.name().toLowerCase(Locale.ROOT);
+
+        long start = Metrics.now();
+        if (params instanceof LoadParams.Prepend) {
+            List<NoteSummary> page = sort.after(noteDao, key, limit);
+            Metrics.recordQuery(metric + ".after", start, page.size(), Metrics.summaryBytes(page));
+            noteCache.putSummaries(page, cacheEpoch);
+            // Запрос идёт в обратном порядке — разворачиваем в порядок списка
+            Collections.reverse(page);
+            if (page.isEmpty()) {
+                return new LoadResult.Page<>(page, null, null);
+            }
+            NotePageKey prevKey = page.size() < limit ? null : NotePageKey.of(page.get(0));
+            return new LoadResult.Page<>(page, prevKey, NotePageKey.of(page.get(page.size() - 1)));
+        }
+
+        List<NoteSummary> page;
+        if (params instanceof LoadParams.Append) {
+            page = sort.before(noteDao, key, limit);
+            Metrics.recordQuery(metric + ".before", start, page.size(), Metrics.summaryBytes(page));
+        } else if (key == null) {
+            // При холодном старте первая страница уже прочитана заранее
+            List<NoteSummary> prefetched = firstPagePrefetch.take(sort, limit);
+            if (prefetched != null) {
+                page = prefetched;
+            } else {
+                page = sort.first(noteDao, limit);
+                Metrics.recordQuery(metric + ".first", start, page.size(), Metrics.summaryBytes(page));
+            }
+        } else {
+            // Обновление после invalidate(): начиная с заметки-ключа включительно
+            page = sort.before(noteDao, key.inclusive(), limit);
+            Metrics.recordQuery(metric + ".from", start, page.size(), Metrics.summaryBytes(page));
+        }
+        noteCache.putSummaries(page, cacheEpoch);
+
+        NotePageKey prevKey = key == null || page.isEmpty() ? null : NotePageKey.of(page.get(0));
+        NotePageKey nextKey = page.size() < limit ? null : NotePageKey.of(page.get(page.size() - 1));
+        return new LoadResult.Page<>(page, prevKey, nextKey);
+    }
+
+    /**
+     * Ключ для перезагрузки после invalidate(): заметка немного выше
+     * текущей позиции прокрутки, чтобы видимая часть списка осталась на месте.
+     */
+    @Nullable
+    @Override
+    public NotePageKey getRefreshKey(@NonNull PagingState<NotePageKey, NoteSummary> state) {
+        Integer anchorPosition = state.getAnchorPosition();
+        if (anchorPosition == null || restartFromTop) {
+            return null;
+        }
+        int position = Math.max(0, anchorPosition - state.getConfig().initialLoadSize / 2);
+        NoteSummary anchor = state.closestItemToPosition(position);
+        return anchor != null ? NotePageKey.of(anchor) : null;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.notes.data.paging;
+
+import androidx.annotation.NonNull;
+
+import com.example.notes.data.db.NoteSummary;
+
+/**
+ * Ключ страницы списка: значения колонок сортировки у граничной заметки.
+ * Какие из полей участвуют в сравнении, решает NoteSort; id замыкает любой порядок.
+ */
+public final class NotePageKey {
+
+    public final boolean important;
+    public final long updatedAt;
+    public final long id;
+
+    NotePageKey(boolean important, long updatedAt, long id) {
+        this.important = important;
+        this.updatedAt = updatedAt;
+        this.id = id;
+    }
+
+    @NonNull
+    static NotePageKey of(@NonNull NoteSummary note) {
+        return new NotePageKey(note.important, note.updatedAt, note.id);
+    }
+
+    /**
+     * Ключ, строго «меньше» которого лежит эта заметка и всё после неё:
+     * превращает выборку «начиная с заметки» в выборку «до ключа».
+     * id — последняя колонка любого порядка и целое, поэтому хватает id + 1.
+     */
+    @NonNull
+    NotePageKey inclusive() {
+        return new NotePageKey(important, updatedAt, id + 1);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "NotePageKey[" + important + ", " + updatedAt + ", " + id + "]";
+    }
+}
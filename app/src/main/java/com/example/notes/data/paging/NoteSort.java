@@ -0,0 +1,113 @@
+package com.example.notes.data.paging;
+
+import androidx.annotation.NonNull;
+
+import com.example.notes.data.db.NoteDao;
+import com.example.notes.data.db.NoteSummary;
+
+import java.util.List;
+
+/**
+ * Порядок и фильтр списка заметок. Каждый режим — три keyset-запроса NoteDao
+ * (первая страница, страница после ключа и перед ним), которые идут
+ * диапазоном по индексу без сортировки в памяти.
+ */
+public enum NoteSort {
+
+    NEWEST("Сначала новые") {
+        @Override
+        List<NoteSummary> first(NoteDao dao, int limit) {
+            return dao.getFirstPage(limit);
+        }
+
+        @Override
+        List<NoteSummary> before(NoteDao dao, NotePageKey key, int limit) {
+            return dao.getPageBefore(key.id, limit);
+        }
+
+        @Override
+        List<NoteSummary> after(NoteDao dao, NotePageKey key, int limit) {
+            return dao.getPageAfter(key.id, limit);
+        }
+    },
+
+    RECENTLY_EDITED("Недавно изменённые") {
+        @Override
+        List<NoteSummary> first(NoteDao dao, int limit) {
+            return dao.getEditedFirstPage(limit);
+        }
+
+        @Override
+        List<NoteSummary> before(NoteDao dao, NotePageKey key, int limit) {
+            return dao.getEditedPageBefore(key.updatedAt, key.id, limit);
+        }
+
+        @Override
+        List<NoteSummary> after(NoteDao dao, NotePageKey key, int limit) {
+            return dao.getEditedPageAfter(key.updatedAt, key.id, limit);
+        }
+    },
+
+    IMPORTANT_FIRST("Сначала важные") {
+        @Override
+        List<NoteSummary> first(NoteDao dao, int limit) {
+            return dao.getImportantFirstPage(limit);
+        }
+
+        @Override
+        List<NoteSummary> before(NoteDao dao, NotePageKey key, int limit) {
+            return dao.getImportantFirstPageBefore(key.important, key.updatedAt, key.id, limit);
+        }
+
+        @Override
+        List<NoteSummary> after(NoteDao dao, NotePageKey key, int limit) {
+            return dao.getImportantFirstPageAfter(key.important, key.updatedAt, key.id, limit);
+        }
+    },
+
+    IMPORTANT_ONLY("Только важные") {
+        @Override
+        List<NoteSummary> first(NoteDao dao, int limit) {
+            return dao.getImportantOnlyFirstPage(limit);
+        }
+
+        @Override
+        List<NoteSummary> before(NoteDao dao, NotePageKey key, int limit) {
+            return dao.getImportantOnlyPageBefore(key.updatedAt, key.id, limit);
+        }
+
+        @Override
+        List<NoteSummary> after(NoteDao dao, NotePageKey key, int limit) {
+            return dao.getImportantOnlyPageAfter(key.updatedAt, key.id, limit);
+        }
+    };
+
+    // Подпись в диалоге выбора сортировки
+    public final String label;
+
+    NoteSort(String label) {
+        this.label = label;
+    }
+
+    // Первая страница списка
+    abstract List<NoteSummary> first(NoteDao dao, int limit);
+
+    // Заметки строго после ключа в порядке списка
+    abstract List<NoteSummary> before(NoteDao dao, NotePageKey key, int limit);
+
+    // Заметки строго перед ключом, в обратном порядке (ближайшая к ключу — первая)
+    abstract List<NoteSummary> after(NoteDao dao, NotePageKey key, int limit);
+
+    /**
+     * Режим по имени из настроек; неизвестное или пустое имя — NEWEST.
+     */
+    @NonNull
+    public static NoteSort fromName(String name) {
+        if (name != null) {
+            for (NoteSort sort : values()) {
+                if (sort.name().equals(name)) return sort;
+            }
+        }
+        return NEWEST;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.notes.data.search;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.notes.data.db.NoteDao;
+import com.example.notes.data.db.NoteSearchResult;
+import com.example.notes.metrics.Metrics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Полнотекстовый поиск по заметкам поверх notes_fts.
+ * notes_fts видит только первый кусок текста; хвосты больших заметок
+ * ищутся в notes_body_fts, совпадения склеиваются по id.
+ * Превращает ввод пользователя в безопасный MATCH-запрос
+ * и ранжирует совпадения по matchinfo() (FTS4 не умеет bm25).
+ * К совпадениям FTS подмешиваются похожие заголовки из триграммного индекса
+ * (см. TitleTrigramSearch) — так находятся середины слов и опечатки.
+ */
+public final class NoteSearch {
+
+    // Сколько самых свежих совпадений ранжируем и показываем
+    public static final int MAX_RESULTS = 200;
+
+    // Вес совпадения в заголовке и в тексте (порядок колонок как в NoteFts)
+    private static final double[] COLUMN_WEIGHTS = {3.0, 1.0};
+
+    // Единственная колонка notes_body_fts — полный текст
+    private static final double[] BODY_WEIGHTS = {1.0};
+
+    private NoteSearch() {
+    }
+
+    /**
+     * Выполняет поиск и возвращает результаты, отсортированные по релевантности.
+     * Вызывать только на фоновом потоке.
+     */
+    @NonNull
+    public static List<NoteSearchResult> search(@NonNull NoteDao noteDao, @Nullable String rawQuery) {
+        return search(noteDao, rawQuery, () -> false);
+    }
+
+    /**
+     * То же с отменой: cancelled проверяется между запросами к базе,
+     * и устаревший поиск (пользователь уже печатает дальше) бросается на полпути
+     * с пустым результатом.
+     */
+    @NonNull
+    public static List<NoteSearchResult> search(@NonNull NoteDao noteDao, @Nullable String rawQuery,
+                                                @NonNull BooleanSupplier cancelled) {
+        String matchQuery = toMatchQuery(rawQuery);
+        if (matchQuery == null) {
+            return Collections.emptyList();
+        }
+
+        long start = Metrics.now();
+        List<NoteSearchResult> results = noteDao.search(matchQuery, MAX_RESULTS);
+        for (NoteSearchResult result : results) {
+            result.rank = rank(result.matchInfo, COLUMN_WEIGHTS);
+            result.matchInfo = null;  // больше не нужен — не держим в памяти
+        }
+        Metrics.recordSince("search.fts.us", start);
+        if (cancelled.getAsBoolean()) return Collections.emptyList();
+
+        start = Metrics.now();
+        List<NoteSearchResult> bodies = noteDao.searchBodies(matchQuery, MAX_RESULTS);
+        for (NoteSearchResult result : bodies) {
+            result.rank = rank(result.matchInfo, BODY_WEIGHTS);
+            result.matchInfo = null;
+        }
+        results = withBodies(results, bodies);
+        double maxRank = 0;
+        for (NoteSearchResult result : results) {
+            maxRank = Math.max(maxRank, result.rank);
+        }
+        Metrics.recordSince("search.body.us", start);
+        if (cancelled.getAsBoolean()) return Collections.emptyList();
+
+        start = Metrics.now();
+        List<NoteSearchResult> similar = TitleTrigramSearch.search(noteDao, rawQuery, cancelled);
+        Metrics.recordSince("search.trigram.us", start);
+        if (cancelled.getAsBoolean()) return Collections.emptyList();
+
+        return merge(results, maxRank, similar);
+    }
+
+    /**
+     * Добавляет к совпадениям notes_fts совпадения в полном тексте больших заметок.
+     * Заметка, найденная в обоих индексах, остаётся одна, с фрагментом notes_fts
+     * (первый кусок — то, что видно в списке) и большей из двух оценок.
+     */
+    private static List<NoteSearchResult> withBodies(List<NoteSearchResult> fts, List<NoteSearchResult> bodies) {
+        if (bodies.isEmpty()) return fts;
+        Map<Long, NoteSearchResult> byId = new LinkedHashMap<>();
+        for (NoteSearchResult result : fts) {
+            byId.put(result.id, result);
+        }
+        for (NoteSearchResult result : bodies) {
+            NoteSearchResult found = byId.get(result.id);
+            if (found != null) {
+                found.rank = Math.max(found.rank, result.rank);
+            } else {
+                byId.put(result.id, result);
+            }
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    /**
+     * Склеивает совпадения FTS и триграмм по id. Оценка FTS нормируется
+     * по лучшей в выдаче (0..1) и складывается со сходством заголовка:
+     * заметка, найденная обоими способами, поднимается выше.
+     * У таких заметок остаётся фрагмент FTS — он показывает совпадение в тексте.
+     */
+    private static List<NoteSearchResult> merge(List<NoteSearchResult> fts, double maxRank,
+                                                List<NoteSearchResult> similar) {
+        // LinkedHashMap: при равной оценке порядок FTS (свежие выше) сохраняется
+        Map<Long, NoteSearchResult> byId = new LinkedHashMap<>();
+        for (NoteSearchResult result : fts) {
+            result.rank = maxRank > 0 ? result.rank / maxRank : 0;
+            byId.put(result.id, result);
+        }
+        for (NoteSearchResult result : similar) {
+            NoteSearchResult found = byId.get(result.id);
+            if (found != null) {
+                found.rank += result.rank;
+            } else {
+                byId.put(result.id, result);
+            }
+        }
+
+        List<NoteSearchResult> merged = new ArrayList<>(byId.values());
+        Collections.sort(merged, (a, b) -> Double.compare(b.rank, a.rank));
+        return merged.size() > MAX_RESULTS ? new ArrayList<>(merged.subList(0, MAX_RESULTS)) : merged;
+    }
+
+    /**
+     * Строит MATCH-запрос: каждое слово ищется как префикс,
+     * спецсимволы FTS-синтаксиса из ввода удаляются.
+     * Возвращает null, если искать нечего.
+     */
+    @Nullable
+    static String toMatchQuery(@Nullable String rawQuery) {
+        if (rawQuery == null) return null;
+
+        StringBuilder query = new StringBuilder();
+        for (String token : rawQuery.toLowerCase(Locale.ROOT).split("\\s+")) {
+            StringBuilder clean = new StringBuilder();
+            for (int i = 0; i < token.length(); i++) {
+                char c = token.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    clean.append(c);
+                }
+            }
+            if (clean.length() == 0) continue;
+            if (query.length() > 0) query.append(' ');
+            query.append(clean).append('*');
+        }
+        return query.length() > 0 ? query.toString() : null;
+    }
+
+    /**
+     * Оценка релевантности по matchinfo(..., 'pcx'):
+     * для каждой фразы и колонки — доля совпадений этой строки
+     * от всех совпадений в индексе, с весом колонки.
+     */
+    private static double rank(@Nullable byte[] matchInfo, double[] columnWeights) {
+        if (matchInfo == null || matchInfo.length < 8) return 0;
+
+        IntBuffer info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phraseCount = info.get(0);
+        int columnCount = info.get(1);
+
+        double score = 0;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount; column++) {
+                int base = 2 + (phrase * columnCount + column) * 3;
+                int hitsInRow = info.get(base);
+                int hitsInAllRows = info.get(base + 1);
+                if (hitsInRow > 0 && hitsInAllRows > 0) {
+                    double weight = column < columnWeights.length ? columnWeights[column] : 1.0;
+                    score += weight * hitsInRow / hitsInAllRows;
+                }
+            }
+        }
+        return score;
+    }
+}
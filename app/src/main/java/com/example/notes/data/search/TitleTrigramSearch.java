@@ -0,0 +1,108 @@
+package com.example.notes.data.search;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.notes.data.db.NoteDao;
+import com.example.notes.data.db.NoteSearchResult;
+import com.example.notes.data.db.TitleTrigramCount;
+import com.example.notes.data.db.TrigramMatch;
+import com.example.notes.data.db.Trigrams;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Нечёткий поиск по заголовкам через триграммный индекс title_trigrams.
+ * Находит фрагменты слов и заголовки с опечатками, которых префиксный MATCH не видит.
+ *
+ * Заметка-кандидат должна делить с запросом не меньше половины его триграмм.
+ * Такая заметка обязательно содержит хотя бы одну из (|Q| − minShared + 1) самых редких
+ * триграмм запроса, поэтому кандидаты берутся только из их коротких списков,
+ * а частые триграммы ("ени", " по") проверяются точечно по первичному ключу.
+ */
+public final class TitleTrigramSearch {
+
+    // Длинный запрос режем: лишние триграммы почти не меняют порядок, но удлиняют IN (...)
+    static final int MAX_QUERY_TRIGRAMS = 24;
+
+    // Сколько лучших по редким триграммам заметок проверяем на число общих триграмм
+    static final int CANDIDATE_LIMIT = 400;
+
+    // Длина текста под заголовком в результатах (совпадение здесь только в заголовке)
+    private static final int SNIPPET_LENGTH = 80;
+
+    // Доля общих триграмм, без которой заметка не считается совпадением
+    private static final double MIN_SHARED_FRACTION = 0.5;
+
+    // Прибавка за то, что запрос целиком стоит в заголовке
+    private static final double SUBSTRING_BOOST = 0.5;
+
+    private TitleTrigramSearch() {
+    }
+
+    /**
+     * Заголовки, похожие на запрос; rank — сходство от 0 до 1.5.
+     * Между запросами к базе проверяет cancelled и, если поиск уже не нужен,
+     * возвращает пустой список. Вызывать только на фоновом потоке.
+     */
+    @NonNull
+    public static List<NoteSearchResult> search(@NonNull NoteDao noteDao, @Nullable String rawQuery,
+                                                @NonNull BooleanSupplier cancelled) {
+        long[] queryTrigrams = Trigrams.ofQuery(rawQuery);
+        if (queryTrigrams.length == 0) return Collections.emptyList();
+
+        int size = Math.min(queryTrigrams.length, MAX_QUERY_TRIGRAMS);
+        List<Long> trigrams = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            trigrams.add(queryTrigrams[i]);
+        }
+
+        // Частоты из title_trigram_counts; триграммы, которых нет ни в одном заголовке, — нулевые
+        Map<Long, Integer> counts = new HashMap<>();
+        for (TitleTrigramCount count : noteDao.getTrigramCounts(trigrams)) {
+            counts.put(count.trigram, count.count);
+        }
+        Collections.sort(trigrams, (a, b) -> Integer.compare(
+                counts.getOrDefault(a, 0), counts.getOrDefault(b, 0)));
+
+        int minShared = (int) Math.ceil(size * MIN_SHARED_FRACTION);
+        if (cancelled.getAsBoolean()) return Collections.emptyList();
+        List<Long> candidates = noteDao.getTrigramCandidates(
+                trigrams.subList(0, size - minShared + 1), CANDIDATE_LIMIT);
+        if (candidates.isEmpty() || cancelled.getAsBoolean()) return Collections.emptyList();
+
+        Map<Long, Integer> shared = new HashMap<>();
+        for (TrigramMatch match : noteDao.countSharedTrigrams(trigrams, candidates)) {
+            if (match.shared >= minShared) shared.put(match.noteId, match.shared);
+        }
+        if (shared.isEmpty() || cancelled.getAsBoolean()) return Collections.emptyList();
+
+        List<NoteSearchResult> results = noteDao.getSearchRows(new ArrayList<>(shared.keySet()), SNIPPET_LENGTH);
+        String normalizedQuery = Trigrams.normalize(rawQuery);
+        for (NoteSearchResult result : results) {
+            result.rank = similarity(size, shared.get(result.id), result.title, normalizedQuery);
+        }
+        return results;
+    }
+
+    /**
+     * Сходство заголовка с запросом: поровну полнота покрытия запроса (shared / |Q|)
+     * и коэффициент Жаккара (не даёт длинным заголовкам выигрывать за счёт длины),
+     * плюс SUBSTRING_BOOST, если нормализованный запрос — подстрока заголовка.
+     */
+    static double similarity(int queryTrigrams, int shared, @Nullable String title, @NonNull String normalizedQuery) {
+        int titleTrigrams = Trigrams.ofTitle(title).length;
+        double containment = (double) shared / queryTrigrams;
+        double jaccard = (double) shared / (queryTrigrams + titleTrigrams - shared);
+        double score = 0.5 * containment + 0.5 * jaccard;
+        if (!normalizedQuery.isEmpty() && Trigrams.normalize(title).contains(normalizedQuery)) {
+            score += SUBSTRING_BOOST;
+        }
+        return score;
+    }
+}
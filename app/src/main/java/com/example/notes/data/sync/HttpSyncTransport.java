@@ -0,0 +1,78 @@
+package com.example.notes.data.sync;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * Транспорт синхронизации поверх HttpURLConnection: POST на baseUrl + endpoint.
+ * Тело уже сжато gzip, поэтому Accept-Encoding выставляется явно —
+ * ответ приходит как есть, без прозрачной распаковки.
+ */
+public final class HttpSyncTransport implements SyncTransport {
+
+    private static final int CONNECT_TIMEOUT_MS = 15_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+
+    private final URL baseUrl;
+
+    public HttpSyncTransport(@NonNull String baseUrl) throws MalformedURLException {
+        this.baseUrl = new URL(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/");
+    }
+
+    @NonNull
+    @Override
+    public byte[] post(@NonNull String endpoint, @NonNull byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl, endpoint).openConnection();
+        try {
+            int code;
+            try {
+                connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+                connection.setReadTimeout(READ_TIMEOUT_MS);
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(body.length);
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setRequestProperty("Content-Encoding", "gzip");
+                connection.setRequestProperty("Accept-Encoding", "gzip");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body);
+                }
+                code = connection.getResponseCode();
+            } catch (IOException e) {
+                // Сеть недоступна, соединение оборвалось, таймаут — повторим позже
+                throw new RetryableException(e);
+            }
+
+            if (code == 429 || code >= 500) {
+                throw new RetryableException("HTTP " + code + " от " + endpoint);
+            }
+            if (code != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + code + " от " + endpoint);
+            }
+            try (InputStream in = connection.getInputStream()) {
+                return readAll(in);
+            } catch (IOException e) {
+                throw new RetryableException(e);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,326 @@
+package com.example.notes.data.sync;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+
+import androidx.annotation.NonNull;
+
+import com.example.notes.data.db.ContentHash;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Сообщения протокола синхронизации: JSON, сжатый gzip.
+ * push:  запрос {"changes": [запись...]}, ответ {"accepted": N, "resend": [sync_id...]} —
+ *        частичные записи, которые сервер не смог дополнить, клиент шлёт повторно целиком
+ * pull:  запрос {"since": курсор, "limit": N},
+ *        ответ {"changes": [запись с "seq"...], "cursor": курсор, "more": bool}
+ * Запись — поля SyncRecord; хэши — шестнадцатеричной строкой, дельта текста — в Base64.
+ * Отсутствующее поле значит «не менялось» (см. SyncRecord.fields).
+ * Обе стороны протокола здесь, чтобы тестовый сервер говорил на том же формате.
+ */
+public final class SyncCodec {
+
+    /**
+     * Запрос изменений сервера после курсора.
+     */
+    public static final class PullRequest {
+        public long since;
+        public int limit;
+    }
+
+    /**
+     * Ответ на push.
+     */
+    public static final class PushResponse {
+        public int accepted;
+        public final List<String> resend = new ArrayList<>();
+    }
+
+    /**
+     * Порция изменений сервера.
+     */
+    public static final class PullResponse {
+        public final List<SyncRecord> changes = new ArrayList<>();
+        public long cursor;
+        public boolean more;
+    }
+
+    private SyncCodec() {
+    }
+
+    // === Клиент ===
+
+    @NonNull
+    public static byte[] encodePush(@NonNull List<SyncRecord> changes) throws IOException {
+        return write(json -> {
+            json.beginObject();
+            json.name("changes");
+            writeRecords(json, changes);
+            json.endObject();
+        });
+    }
+
+    @NonNull
+    public static PushResponse decodePushResponse(@NonNull byte[] body) throws IOException {
+        PushResponse response = new PushResponse();
+        read(body, json -> {
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "accepted":
+                        response.accepted = json.nextInt();
+                        break;
+                    case "resend":
+                        json.beginArray();
+                        while (json.hasNext()) {
+                            response.resend.add(json.nextString());
+                        }
+                        json.endArray();
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+        });
+        return response;
+    }
+
+    @NonNull
+    public static byte[] encodePullRequest(long since, int limit) throws IOException {
+        return write(json -> json.beginObject()
+                .name("since").value(since)
+                .name("limit").value(limit)
+                .endObject());
+    }
+
+    @NonNull
+    public static PullResponse decodePullResponse(@NonNull byte[] body) throws IOException {
+        PullResponse response = new PullResponse();
+        read(body, json -> {
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "changes":
+                        readRecords(json, response.changes);
+                        break;
+                    case "cursor":
+                        response.cursor = json.nextLong();
+                        break;
+                    case "more":
+                        response.more = json.nextBoolean();
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+        });
+        return response;
+    }
+
+    // === Сервер ===
+
+    @NonNull
+    public static List<SyncRecord> decodePush(@NonNull byte[] body) throws IOException {
+        List<SyncRecord> changes = new ArrayList<>();
+        read(body, json -> {
+            json.beginObject();
+            while (json.hasNext()) {
+                if ("changes".equals(json.nextName())) {
+                    readRecords(json, changes);
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        });
+        return changes;
+    }
+
+    @NonNull
+    public static byte[] encodePushResponse(int accepted, @NonNull List<String> resend) throws IOException {
+        return write(json -> {
+            json.beginObject();
+            json.name("accepted").value(accepted);
+            json.name("resend").beginArray();
+            for (String syncId : resend) {
+                json.value(syncId);
+            }
+            json.endArray();
+            json.endObject();
+        });
+    }
+
+    @NonNull
+    public static PullRequest decodePullRequest(@NonNull byte[] body) throws IOException {
+        PullRequest request = new PullRequest();
+        read(body, json -> {
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "since":
+                        request.since = json.nextLong();
+                        break;
+                    case "limit":
+                        request.limit = json.nextInt();
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+        });
+        return request;
+    }
+
+    @NonNull
+    public static byte[] encodePullResponse(@NonNull PullResponse response) throws IOException {
+        return write(json -> {
+            json.beginObject();
+            json.name("changes");
+            writeRecords(json, response.changes);
+            json.name("cursor").value(response.cursor);
+            json.name("more").value(response.more);
+            json.endObject();
+        });
+    }
+
+    // === Записи ===
+
+    private static void writeRecords(JsonWriter json, List<SyncRecord> records) throws IOException {
+        json.beginArray();
+        for (SyncRecord record : records) {
+            json.beginObject();
+            json.name("sync_id").value(record.syncId);
+            if (record.seq != 0) json.name("seq").value(record.seq);
+            if (record.deletedAt != 0) {
+                // Удалённой заметке текст не нужен
+                json.name("deleted_at").value(record.deletedAt);
+                json.name("updated_at").value(record.updatedAt);
+            } else {
+                if ((record.fields & SyncRecord.FIELD_TITLE) != 0) json.name("title").value(record.title);
+                if ((record.fields & SyncRecord.FIELD_CONTENT) != 0) {
+                    if (record.contentDelta != null) {
+                        json.name("content_delta").value(Base64.getEncoder().encodeToString(record.contentDelta));
+                        json.name("base_hash").value(Long.toHexString(record.baseHash));
+                    } else {
+                        json.name("content").value(record.content);
+                    }
+                }
+                if ((record.fields & SyncRecord.FIELD_IMPORTANT) != 0) {
+                    json.name("important").value(record.important);
+                }
+                json.name("created_at").value(record.createdAt);
+                json.name("updated_at").value(record.updatedAt);
+                json.name("content_hash").value(Long.toHexString(record.contentHash));
+            }
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private static void readRecords(JsonReader json, List<SyncRecord> into) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            SyncRecord record = new SyncRecord();
+            record.fields = 0;
+            boolean hasHash = false;
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (json.peek() == JsonToken.NULL) {
+                    json.nextNull();
+                    if ("title".equals(name)) record.fields |= SyncRecord.FIELD_TITLE;
+                    continue;
+                }
+                switch (name) {
+                    case "sync_id":
+                        record.syncId = json.nextString();
+                        break;
+                    case "seq":
+                        record.seq = json.nextLong();
+                        break;
+                    case "title":
+                        record.title = json.nextString();
+                        record.fields |= SyncRecord.FIELD_TITLE;
+                        break;
+                    case "content":
+                        record.content = json.nextString();
+                        record.fields |= SyncRecord.FIELD_CONTENT;
+                        break;
+                    case "content_delta":
+                        record.contentDelta = Base64.getDecoder().decode(json.nextString());
+                        record.fields |= SyncRecord.FIELD_CONTENT;
+                        break;
+                    case "base_hash":
+                        record.baseHash = Long.parseUnsignedLong(json.nextString(), 16);
+                        break;
+                    case "important":
+                        record.important = json.nextBoolean();
+                        record.fields |= SyncRecord.FIELD_IMPORTANT;
+                        break;
+                    case "created_at":
+                        record.createdAt = json.nextLong();
+                        break;
+                    case "updated_at":
+                        record.updatedAt = json.nextLong();
+                        break;
+                    case "deleted_at":
+                        record.deletedAt = json.nextLong();
+                        break;
+                    case "content_hash":
+                        record.contentHash = Long.parseUnsignedLong(json.nextString(), 16);
+                        hasHash = true;
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+            if (!hasHash && record.deletedAt == 0 && record.content != null) {
+                record.contentHash = ContentHash.of(record.content);
+            }
+            into.add(record);
+        }
+        json.endArray();
+    }
+
+    // === gzip ===
+
+    private interface Body {
+        void write(JsonWriter json) throws IOException;
+    }
+
+    private interface Parser {
+        void read(JsonReader json) throws IOException;
+    }
+
+    private static byte[] write(Body body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (JsonWriter json = new JsonWriter(new OutputStreamWriter(
+                new GZIPOutputStream(bytes), StandardCharsets.UTF_8))) {
+            body.write(json);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void read(byte[] body, Parser parser) throws IOException {
+        try (JsonReader json = new JsonReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(body)), StandardCharsets.UTF_8))) {
+            parser.read(json);
+        }
+    }
+}
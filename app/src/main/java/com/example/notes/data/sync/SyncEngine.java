@@ -0,0 +1,340 @@
+package com.example.notes.data.sync;
+
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.notes.data.db.AppDatabase;
+import com.example.notes.data.db.ContentHash;
+import com.example.notes.data.db.Note;
+import com.example.notes.data.db.NoteChange;
+import com.example.notes.data.db.NoteDao;
+import com.example.notes.data.db.NoteHistory;
+import com.example.notes.data.db.TextDelta;
+import com.example.notes.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Дельта-синхронизация заметок с сервером: сначала pull, потом push.
+ *
+ * pull забирает изменения сервера после сохранённого курсора порциями по PULL_LIMIT
+ * и применяет каждую порцию одной транзакцией. Локальную правку, ещё не отправленную
+ * (version > synced_version), запись сервера перезаписывает, только если побеждает
+ * по SyncRecord.winsOver — то же правило применяет сервер, так что устройства сходятся.
+ *
+ * push идёт по журналу note_changes после сохранённого seq и отправляет порциями
+ * по PUSH_BATCH только изменённые строки, — объём обмена пропорционален числу правок,
+ * а не числу заметок. Из строки уходят только изменённые поля (sync_dirty), текст —
+ * дельтой от версии, известной серверу (synced_hash, её текст берётся из истории правок);
+ * целиком — только если такой версии в истории нет или сервер не смог применить дельту.
+ * После ответа сервера отправленная версия помечается принятой; заметку, которую сервер
+ * не принял и целиком, следующий обмен отправит снова.
+ *
+ * Временные ошибки транспорта повторяются с экспоненциальной задержкой;
+ * курсоры сдвигаются только после успешной порции, поэтому прерванный обмен
+ * безопасно начинать заново. Вызывать на фоновом потоке.
+ */
+public final class SyncEngine {
+
+    public static final String ENDPOINT_PULL = "pull";
+    public static final String ENDPOINT_PUSH = "push";
+
+    static final int PULL_LIMIT = 200;
+    static final int PUSH_BATCH = 100;
+    static final int MAX_ATTEMPTS = 4;
+    static final long BASE_BACKOFF_MS = 1000;
+
+    // Состояние обмена (SharedPreferences): курсор сервера и seq журнала, отправленный последним
+    private static final String KEY_PULL_CURSOR = "pull_cursor";
+    private static final String KEY_PUSH_SEQ = "push_seq";
+
+    /**
+     * Изменения с сервера записаны в базу (вызывается на потоке синхронизации после коммита).
+     */
+    public interface Listener {
+        void onRemoteApplied(@NonNull List<Long> noteIds);
+    }
+
+    /**
+     * Итог одного обмена.
+     */
+    public static final class Result {
+        public int pulled;
+        public int applied;
+        public int pushed;
+        public long bytesSent;
+        public long bytesReceived;
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Sync[pulled=" + pulled + ", applied=" + applied + ", pushed=" + pushed
+                    + ", sent=" + bytesSent + " B, received=" + bytesReceived + " B]";
+        }
+    }
+
+    private final AppDatabase db;
+    private final NoteDao noteDao;
+    private final SyncTransport transport;
+    private final SharedPreferences state;
+    @Nullable
+    private final Listener listener;
+    private final long baseBackoffMs;
+
+    public SyncEngine(@NonNull AppDatabase db, @NonNull SyncTransport transport,
+                      @NonNull SharedPreferences state, @Nullable Listener listener) {
+        this(db, transport, state, listener, BASE_BACKOFF_MS);
+    }
+
+    SyncEngine(@NonNull AppDatabase db, @NonNull SyncTransport transport,
+               @NonNull SharedPreferences state, @Nullable Listener listener, long baseBackoffMs) {
+        this.db = db;
+        this.noteDao = db.noteDao();
+        this.transport = transport;
+        this.state = state;
+        this.listener = listener;
+        this.baseBackoffMs = baseBackoffMs;
+    }
+
+    /**
+     * Полный обмен. IOException — обмен не завершён, его можно повторить позже.
+     */
+    @NonNull
+    public Result sync() throws IOException {
+        long start = Metrics.now();
+        Result result = new Result();
+        pull(result);
+        push(result);
+        Metrics.recordSince("sync.run.us", start);
+        Metrics.add("sync.bytes.sent", result.bytesSent);
+        Metrics.add("sync.bytes.received", result.bytesReceived);
+        return result;
+    }
+
+    // === pull ===
+
+    private void pull(Result result) throws IOException {
+        long cursor = state.getLong(KEY_PULL_CURSOR, 0);
+        SyncCodec.PullResponse response;
+        do {
+            byte[] body = exchange(ENDPOINT_PULL, SyncCodec.encodePullRequest(cursor, PULL_LIMIT), result);
+            response = SyncCodec.decodePullResponse(body);
+            result.pulled += response.changes.size();
+
+            if (!response.changes.isEmpty()) {
+                List<Long> applied = new ArrayList<>();
+                List<SyncRecord> changes = response.changes;
+                db.runInTransaction(() -> applyRemote(changes, applied));
+                result.applied += applied.size();
+                if (listener != null && !applied.isEmpty()) {
+                    listener.onRemoteApplied(applied);
+                }
+            }
+            cursor = response.cursor;
+            state.edit().putLong(KEY_PULL_CURSOR, cursor).apply();
+        } while (response.more && !response.changes.isEmpty());
+    }
+
+    // Внутри транзакции: применяет порцию записей сервера, в applied — id изменённых заметок
+    private void applyRemote(List<SyncRecord> changes, List<Long> applied) {
+        List<String> syncIds = new ArrayList<>(changes.size());
+        for (SyncRecord record : changes) {
+            syncIds.add(record.syncId);
+        }
+        Map<String, Note> local = new HashMap<>();
+        for (Note note : noteDao.getBySyncIds(syncIds)) {
+            local.put(note.syncId, note);
+        }
+
+        for (SyncRecord remote : changes) {
+            Note note = local.get(remote.syncId);
+            if (note == null) {
+                // Новая заметка с другого устройства; удалённую незачем и создавать
+                if (remote.deletedAt != 0) continue;
+                long id = noteDao.insertNote(remote.toNote());
+                noteDao.markClean(id);
+                applied.add(id);
+                continue;
+            }
+
+            if (remote.sameState(note)) {
+                noteDao.markClean(note.id);
+                continue;
+            }
+            if (note.version > note.syncedVersion && !remote.winsOver(localRecord(note))) {
+                // Локальная правка новее — она уйдёт на сервер в push и победит там
+                continue;
+            }
+            applyTo(note, remote);
+            noteDao.markClean(note.id);
+            applied.add(note.id);
+        }
+    }
+
+    // Для сравнения с записью сервера нужен только хэш текста; текст читается, лишь если хэш не посчитан
+    private SyncRecord localRecord(Note note) {
+        if (note.contentHash == ContentHash.UNKNOWN && note.deletedAt == 0) {
+            note.contentHash = ContentHash.of(noteDao.loadFullContent(note));
+        }
+        return SyncRecord.of(note);
+    }
+
+    private void applyTo(Note note, SyncRecord remote) {
+        List<Long> id = Collections.singletonList(note.id);
+        if (remote.deletedAt != 0) {
+            // Текст надгробия не передаётся — оставляем локальный до очистки
+            if (note.deletedAt != remote.deletedAt) noteDao.softDelete(id, remote.deletedAt);
+        } else {
+            if (note.deletedAt != 0) noteDao.restore(id);
+            if (!Objects.equals(note.title, remote.title)) noteDao.updateTitle(note.id, remote.title);
+            if (note.contentHash != remote.contentHash) noteDao.updateContent(note.id, remote.content);
+            if (note.important != remote.important) noteDao.updateImportant(note.id, remote.important);
+        }
+        noteDao.touch(note.id, remote.updatedAt);
+    }
+
+    // === push ===
+
+    private void push(Result result) throws IOException {
+        long seq = state.getLong(KEY_PUSH_SEQ, 0);
+        while (true) {
+            List<NoteChange> changes = noteDao.getChangesAfter(seq, PUSH_BATCH);
+            if (changes.isEmpty()) return;
+
+            List<Long> ids = new ArrayList<>(changes.size());
+            for (NoteChange change : changes) {
+                ids.add(change.noteId);
+            }
+            // Строки, пришедшие с сервера, и уже отправленные версии в журнале тоже есть — их пропускаем
+            List<SyncRecord> batch = new ArrayList<>();
+            Map<String, Note> notes = new HashMap<>();
+            for (Note note : noteDao.getByIds(ids)) {
+                if (note.syncId == null || note.version <= note.syncedVersion) continue;
+                batch.add(outgoing(note));
+                notes.put(note.syncId, note);
+            }
+
+            if (!batch.isEmpty()) {
+                byte[] response = exchange(ENDPOINT_PUSH, SyncCodec.encodePush(batch), result);
+                Set<String> resend = new HashSet<>(SyncCodec.decodePushResponse(response).resend);
+                if (!resend.isEmpty()) {
+                    // Версия сервера не та, от которой считались частичные записи, — эти шлём целиком
+                    List<SyncRecord> full = new ArrayList<>(resend.size());
+                    for (SyncRecord record : batch) {
+                        if (!resend.contains(record.syncId)) continue;
+                        record.fields = SyncRecord.FIELD_ALL;
+                        withContent(record, notes.get(record.syncId), null);
+                        full.add(record);
+                    }
+                    Metrics.add("sync.resent", full.size());
+                    response = exchange(ENDPOINT_PUSH, SyncCodec.encodePush(full), result);
+                    // Что сервер не принял и целиком, остаётся неотправленным
+                    resend = new HashSet<>(SyncCodec.decodePushResponse(response).resend);
+                }
+                Set<Long> rejected = new HashSet<>();
+                List<SyncRecord> accepted = new ArrayList<>(batch.size());
+                for (SyncRecord record : batch) {
+                    if (resend.contains(record.syncId)) {
+                        rejected.add(record.noteId);
+                    } else {
+                        accepted.add(record);
+                    }
+                }
+                db.runInTransaction(() -> {
+                    for (SyncRecord record : accepted) {
+                        noteDao.markSynced(record.noteId, record.version, record.contentHash);
+                    }
+                });
+                result.pushed += accepted.size();
+                if (!rejected.isEmpty()) {
+                    // seq останавливаем перед первой правкой непринятой заметки: следующий обмен
+                    // прочтёт журнал отсюда и отправит её снова, а принятые пропустит по synced_version
+                    for (NoteChange change : changes) {
+                        if (rejected.contains(change.noteId)) break;
+                        seq = change.seq;
+                    }
+                    Metrics.add("sync.rejected", rejected.size());
+                    state.edit().putLong(KEY_PUSH_SEQ, seq).apply();
+                    return;
+                }
+            }
+            seq = changes.get(changes.size() - 1).seq;
+            state.edit().putLong(KEY_PUSH_SEQ, seq).apply();
+        }
+    }
+
+    // Запись к отправке: заметку, которой сервер ещё не видел, — целиком, остальные — только изменённые поля
+    private SyncRecord outgoing(Note note) {
+        SyncRecord record = SyncRecord.of(note);
+        if (note.deletedAt != 0) return record;
+        if (note.syncedVersion == 0) {
+            withContent(record, note, null);
+            return record;
+        }
+
+        record.fields = 0;
+        if ((note.syncDirty & Note.DIRTY_TITLE) != 0) record.fields |= SyncRecord.FIELD_TITLE;
+        if ((note.syncDirty & Note.DIRTY_IMPORTANT) != 0) record.fields |= SyncRecord.FIELD_IMPORTANT;
+        if (note.contentHash == ContentHash.UNKNOWN || note.contentHash != note.syncedHash) {
+            record.fields |= SyncRecord.FIELD_CONTENT;
+            String base = note.syncedHash != ContentHash.UNKNOWN
+                    ? NoteHistory.loadByHash(noteDao, note.id, note.syncedHash) : null;
+            withContent(record, note, base);
+        }
+        return record;
+    }
+
+    // Текст записи: дельтой от base, если база известна и дельта короче текста, иначе целиком
+    private void withContent(SyncRecord record, Note note, @Nullable String base) {
+        String content = noteDao.loadFullContent(note);
+        if (content == null) content = "";
+        if (record.contentHash == ContentHash.UNKNOWN) record.contentHash = ContentHash.of(content);
+        record.content = content;
+        record.contentDelta = null;
+        if (base != null) {
+            byte[] delta = TextDelta.diff(base, content);
+            if (delta.length < content.length()) {
+                record.content = null;
+                record.contentDelta = delta;
+                record.baseHash = note.syncedHash;
+            }
+        }
+    }
+
+    // === Транспорт с повторами ===
+
+    private byte[] exchange(String endpoint, byte[] body, Result result) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                byte[] response = transport.post(endpoint, body);
+                result.bytesSent += body.length;
+                result.bytesReceived += response.length;
+                return response;
+            } catch (SyncTransport.RetryableException e) {
+                if (attempt >= MAX_ATTEMPTS) throw e;
+                Metrics.increment("sync.retry");
+                // Экспонента с разбросом: устройства, упавшие вместе, не повторяют вместе
+                long delay = baseBackoffMs << (attempt - 1);
+                delay += ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Синхронизация прервана");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.notes.data.sync;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.notes.data.NoteRepository;
+import com.example.notes.data.db.AppDatabase;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Периодическая синхронизация с сервером (см. SyncEngine).
+ * Работает, только если в настройках "sync" задан адрес сервера; запускается
+ * при доступной сети, неудачный обмен система повторяет с экспоненциальной задержкой.
+ */
+public class SyncJob extends JobService {
+
+    private static final String TAG = "NotesSync";
+    private static final int JOB_ID = 1022;
+
+    public static final String PREFS = "sync";
+    public static final String KEY_SERVER_URL = "server_url";
+
+    private static final long PERIOD_MS = TimeUnit.HOURS.toMillis(1);
+    private static final long RETRY_BACKOFF_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private volatile Thread worker;
+
+    /**
+     * Планирует задачу, если сервер задан и задача ещё не запланирована (вызывается при старте приложения).
+     */
+    public static void schedule(@NonNull Context context) {
+        JobScheduler scheduler = context.getSystemService(JobScheduler.class);
+        if (scheduler == null || scheduler.getPendingJob(JOB_ID) != null) return;
+        if (serverUrl(context) == null) return;
+
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, SyncJob.class))
+                .setPeriodic(PERIOD_MS)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setBackoffCriteria(RETRY_BACKOFF_MS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setPersisted(false)
+                .build();
+        scheduler.schedule(job);
+    }
+
+    private static String serverUrl(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE).getString(KEY_SERVER_URL, null);
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        Context context = getApplicationContext();
+        String url = serverUrl(context);
+        if (url == null) return false;
+
+        Thread thread = new Thread(() -> {
+            boolean reschedule = false;
+            try {
+                SharedPreferences state = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+                NoteRepository repository = NoteRepository.getInstance(context);
+                SyncEngine engine = new SyncEngine(AppDatabase.getInstance(context),
+                        new HttpSyncTransport(url), state, repository::onExternalChanges);
+                Log.i(TAG, engine.sync().toString());
+            } catch (IOException e) {
+                Log.w(TAG, "Синхронизация не завершена", e);
+                // 4xx и битый ответ повтор не исправит — ждём следующего периода
+                reschedule = e instanceof SyncTransport.RetryableException
+                        || e instanceof InterruptedIOException;
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Синхронизация не удалась", e);
+            }
+            worker = null;
+            jobFinished(params, reschedule);
+        }, "notes-sync");
+        worker = thread;
+        thread.start();
+        return true;  // работа продолжается в фоне
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Прерываем ожидание повтора; курсоры сдвинуты только до последней успешной порции
+        Thread thread = worker;
+        if (thread != null) thread.interrupt();
+        return true;
+    }
+}
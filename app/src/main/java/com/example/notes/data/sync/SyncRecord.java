@@ -0,0 +1,142 @@
+package com.example.notes.data.sync;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.notes.data.db.ContentHash;
+import com.example.notes.data.db.Note;
+import com.example.notes.data.db.TextDelta;
+
+/**
+ * Состояние заметки в протоколе синхронизации — одна запись на заметку.
+ * Заметки сопоставляются по syncId; удалённая заметка передаётся с deletedAt != 0.
+ *
+ * Отправка клиента частичная: время, удаление и хэш текста есть всегда, а заголовок,
+ * флаг и текст — только изменённые (fields). Текст может прийти дельтой (contentDelta)
+ * от версии с хэшем baseHash. Сервер дополняет такую запись своей (mergedOnto)
+ * и хранит и отдаёт в pull только полные записи.
+ */
+public final class SyncRecord {
+
+    // Биты fields: какие поля заметки есть в записи
+    public static final int FIELD_TITLE = 1;
+    public static final int FIELD_CONTENT = 2;
+    public static final int FIELD_IMPORTANT = 4;
+    public static final int FIELD_ALL = FIELD_TITLE | FIELD_CONTENT | FIELD_IMPORTANT;
+
+    public int fields = FIELD_ALL;
+
+    // Текст дельтой (TextDelta) от версии baseHash вместо content; null — текст целиком
+    @Nullable
+    public byte[] contentDelta;
+    public long baseHash;
+
+    public String syncId;
+    public String title;
+    public String content;
+    public boolean important;
+    public long createdAt;
+    public long updatedAt;
+    public long deletedAt;
+    public long contentHash;
+
+    // Только на клиенте: id строки и версия, которую отправили (для отметки после ответа)
+    long noteId;
+    long version;
+
+    // Только в ответе pull: порядковый номер записи на сервере
+    public long seq;
+
+    /**
+     * Запись из строки заметки без текста: текст (целиком или дельтой) добавляет отправка.
+     * note.contentHash должен быть посчитан.
+     */
+    @NonNull
+    static SyncRecord of(@NonNull Note note) {
+        SyncRecord record = new SyncRecord();
+        record.syncId = note.syncId;
+        record.title = note.title;
+        record.important = note.important;
+        record.createdAt = note.createdAt;
+        record.updatedAt = note.updatedAt;
+        record.deletedAt = note.deletedAt;
+        record.contentHash = note.contentHash;
+        record.noteId = note.id;
+        record.version = note.version;
+        return record;
+    }
+
+    /**
+     * Полная запись: поля, которых нет в этой (частичной), берутся из current — записи сервера.
+     * null — собрать нельзя: у сервера нет заметки или она удалена, либо его текст
+     * не тот, от которого считал клиент (хэш не совпал с baseHash или с неизменённым текстом).
+     * Тогда клиент присылает запись заново целиком.
+     */
+    @Nullable
+    public SyncRecord mergedOnto(@Nullable SyncRecord current) {
+        if (deletedAt != 0 || (fields == FIELD_ALL && contentDelta == null)) return this;
+        if (current == null || current.deletedAt != 0) return null;
+
+        String mergedContent;
+        if ((fields & FIELD_CONTENT) == 0) {
+            if (current.contentHash != contentHash) return null;
+            mergedContent = current.content;
+        } else if (contentDelta != null) {
+            if (current.contentHash != baseHash) return null;
+            mergedContent = TextDelta.apply(current.content, contentDelta);
+            if (ContentHash.of(mergedContent) != contentHash) return null;
+        } else {
+            mergedContent = content;
+        }
+
+        SyncRecord merged = new SyncRecord();
+        merged.syncId = syncId;
+        merged.title = (fields & FIELD_TITLE) != 0 ? title : current.title;
+        merged.content = mergedContent;
+        merged.important = (fields & FIELD_IMPORTANT) != 0 ? important : current.important;
+        merged.createdAt = createdAt;
+        merged.updatedAt = updatedAt;
+        merged.contentHash = contentHash;
+        return merged;
+    }
+
+    @NonNull
+    Note toNote() {
+        Note note = new Note();
+        note.syncId = syncId;
+        note.title = title;
+        note.content = content;
+        note.important = important;
+        note.createdAt = createdAt;
+        note.updatedAt = updatedAt;
+        note.deletedAt = deletedAt;
+        return note;
+    }
+
+    // Момент последнего изменения: правка или удаление
+    long modifiedAt() {
+        return Math.max(updatedAt, deletedAt);
+    }
+
+    /**
+     * Детерминированное разрешение конфликта (last writer wins), одинаковое на клиенте и сервере:
+     * побеждает более позднее изменение; при равном времени — больший хэш текста,
+     * затем удаление. Так все устройства сходятся к одной версии независимо от порядка обмена.
+     */
+    public boolean winsOver(@NonNull SyncRecord other) {
+        if (modifiedAt() != other.modifiedAt()) return modifiedAt() > other.modifiedAt();
+        if (contentHash != other.contentHash) return contentHash > other.contentHash;
+        return deletedAt != 0 && other.deletedAt == 0;
+    }
+
+    /**
+     * Та же версия заметки (например, эхо собственной отправки) — применять нечего.
+     */
+    boolean sameState(@NonNull Note note) {
+        return note.updatedAt == updatedAt
+                && note.deletedAt == deletedAt
+                && note.important == important
+                && note.contentHash == contentHash
+                && (note.title != null ? note.title.equals(title) : title == null);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.notes.data.sync;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+/**
+ * Канал до сервера синхронизации. Тела запросов и ответов — JSON, сжатый gzip
+ * (см. SyncCodec); транспорт их не разбирает. Реализация по умолчанию —
+ * HttpSyncTransport, в тестах подставляется локальный сервер.
+ */
+public interface SyncTransport {
+
+    /**
+     * Временная ошибка (сеть, таймаут, 5xx, 429) — запрос можно повторить позже.
+     */
+    class RetryableException extends IOException {
+        public RetryableException(@NonNull String message) {
+            super(message);
+        }
+
+        public RetryableException(@NonNull Throwable cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Отправляет тело на endpoint ("push" или "pull") и возвращает тело ответа.
+     * Постоянные ошибки (4xx, неверный ответ) — IOException, временные — RetryableException.
+     */
+    @NonNull
+    byte[] post(@NonNull String endpoint, @NonNull byte[] body) throws IOException;
+}
@@ -0,0 +1,60 @@
+package com.example.notes.metrics;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Сбор FrameMetrics окна активности: длительность каждого кадра
+ * и число кадров, не уложившихся в период обновления дисплея (пропущенные кадры).
+ * Колбэки приходят на отдельном фоновом потоке и не нагружают главный.
+ */
+public final class FrameStats {
+
+    private static Handler handler;
+
+    private FrameStats() {
+    }
+
+    /**
+     * Подключает сбор к окну активности. Метрики пишутся как "ui.<screen>.frame.us"
+     * и счётчики "ui.<screen>.frames" / "ui.<screen>.frames.janky".
+     * Отписка не нужна: слушатель живёт, пока живёт окно.
+     */
+    public static void attach(@NonNull Activity activity, @NonNull String screen) {
+        Window window = activity.getWindow();
+        float refreshRate = activity.getDisplay() != null ? activity.getDisplay().getRefreshRate() : 60f;
+        long frameBudgetNanos = (long) (1_000_000_000L / Math.max(refreshRate, 1f));
+
+        String frameName = "ui." + screen + ".frame.us";
+        String framesName = "ui." + screen + ".frames";
+        String jankyName = "ui." + screen + ".frames.janky";
+        String lostName = "ui." + screen + ".frames.unreported";
+
+        window.addOnFrameMetricsAvailableListener((w, frameMetrics, dropCount) -> {
+            long total = frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION);
+            Metrics.record(frameName, total / 1000);
+            Metrics.increment(framesName);
+            if (total > frameBudgetNanos) {
+                Metrics.increment(jankyName);
+            }
+            // Отчёты о кадрах, которые система не успела нам доставить
+            if (dropCount > 0) {
+                Metrics.add(lostName, dropCount);
+            }
+        }, handler());
+    }
+
+    private static synchronized Handler handler() {
+        if (handler == null) {
+            HandlerThread thread = new HandlerThread("frame-metrics");
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        return handler;
+    }
+}
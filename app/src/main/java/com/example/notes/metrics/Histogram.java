@@ -0,0 +1,89 @@
+package com.example.notes.metrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Дешёвая гистограмма неотрицательных значений (микросекунды, строки, байты).
+ * Корзины — степени двойки: запись — пара атомарных инкрементов без блокировок
+ * и без аллокаций, поэтому её можно звать из onBindViewHolder и из запросов к базе.
+ * Перцентили получаются с точностью до корзины (верхняя граница степени двойки).
+ */
+public final class Histogram {
+
+    // Корзина i содержит значения из [2^(i-1), 2^i), корзина 0 — нули
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long seen;
+        while (value > (seen = max.get())) {
+            if (max.compareAndSet(seen, value)) break;
+        }
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public long sum() {
+        return sum.get();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Оценка перцентиля (0..100) сверху: граница корзины, в которую он попал, но не больше max.
+     */
+    public long percentile(double percent) {
+        long n = count.get();
+        if (n == 0) return 0;
+
+        long rank = (long) Math.ceil(n * percent / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                long upper = i == 0 ? 0 : (1L << i) - 1;
+                return Math.min(upper, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "n=%d mean=%.1f p50=%d p90=%d p99=%d max=%d",
+                count(), mean(), percentile(50), percentile(90), percentile(99), max());
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.notes.metrics;
+
+import android.os.Build;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.example.notes.data.db.NoteSummary;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Метрики процесса: именованные гистограммы и счётчики.
+ * Имена: "dao.<метод>.us" — время запроса, "dao.<метод>.rows" и ".bytes" — сколько прочитано,
+ * "ui.*" — отрисовка, "sql.*" — выражения, которые Room отправил в SQLite.
+ * Смотреть — на отладочном экране MetricsActivity, там же выгрузка в файл.
+ */
+public final class Metrics {
+
+    private static final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private static volatile long startedAt = System.currentTimeMillis();
+
+    private Metrics() {
+    }
+
+    @NonNull
+    public static Histogram histogram(@NonNull String name) {
+        Histogram histogram = histograms.get(name);
+        return histogram != null ? histogram : histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    public static void record(@NonNull String name, long value) {
+        histogram(name).record(value);
+    }
+
+    public static void increment(@NonNull String name) {
+        add(name, 1);
+    }
+
+    public static void add(@NonNull String name, long delta) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(name, n -> new AtomicLong());
+        }
+        counter.addAndGet(delta);
+    }
+
+    /**
+     * Отметка времени для recordQuery / recordSince.
+     */
+    public static long now() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * Время с отметки start в микросекундах.
+     */
+    public static void recordSince(@NonNull String name, long startNanos) {
+        record(name, (now() - startNanos) / 1000);
+    }
+
+    /**
+     * Запрос к NoteDao: время, прочитанные строки и байты текста.
+     */
+    public static void recordQuery(@NonNull String method, long startNanos, int rows, long bytes) {
+        recordSince("dao." + method + ".us", startNanos);
+        record("dao." + method + ".rows", rows);
+        record("dao." + method + ".bytes", bytes);
+    }
+
+    /**
+     * Байты текста в странице списка (UTF-16, как в памяти).
+     */
+    public static long summaryBytes(@NonNull List<NoteSummary> page) {
+        long chars = 0;
+        for (NoteSummary summary : page) {
+            chars += length(summary.title) + length(summary.preview);
+        }
+        return chars * 2;
+    }
+
+    public static long textBytes(String... texts) {
+        long chars = 0;
+        for (String text : texts) {
+            chars += length(text);
+        }
+        return chars * 2;
+    }
+
+    private static int length(String text) {
+        return text != null ? text.length() : 0;
+    }
+
+    public static void reset() {
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        for (AtomicLong counter : counters.values()) {
+            counter.set(0);
+        }
+        startedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Текстовый отчёт: устройство, затем счётчики и гистограммы по алфавиту.
+     */
+    public static void dump(@NonNull Writer out) throws IOException {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.ROOT);
+        out.write("device: " + Build.MANUFACTURER + " " + Build.MODEL
+                + ", Android " + Build.VERSION.RELEASE + " (API " + Build.VERSION.SDK_INT + ")\n");
+        out.write("since: " + format.format(new Date(startedAt))
+                + ", now: " + format.format(new Date()) + "\n\n");
+
+        out.write("[counters]\n");
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<>(counters).entrySet()) {
+            out.write(entry.getKey() + " = " + entry.getValue().get() + "\n");
+        }
+
+        out.write("\n[histograms]\n");
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            if (entry.getValue().count() == 0) continue;
+            out.write(entry.getKey() + ": " + entry.getValue() + "\n");
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.notes.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.StyleRes;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.notes.R;
+import com.example.notes.data.paging.NoteSort;
+
+/**
+ * Настройки оформления и списка (SharedPreferences "app_settings").
+ * Тема и шрифт наблюдаемы: открытые активности применяют новое значение
+ * на месте (шрифт — перерисовкой, тема — recreate()), без перезапуска задачи.
+ */
+public final class AppSettings {
+
+    public static final String PREFS = "app_settings";
+
+    public static final String THEME_LIGHT = "Светлая";
+    public static final String THEME_DARK = "Тёмная";
+    public static final String THEME_BLUE = "Синяя";
+
+    private static final String KEY_THEME = "theme";
+    private static final String KEY_FONT = "font";
+    private static final String KEY_SORT = "sort";
+
+    private static AppSettings instance;
+
+    private final SharedPreferences prefs;
+    private final MutableLiveData<String> theme;
+    private final MutableLiveData<String> font;
+
+    // SharedPreferences держит слушателей слабыми ссылками — храним его в поле
+    private final SharedPreferences.OnSharedPreferenceChangeListener listener = (sharedPrefs, key) -> {
+        if (KEY_THEME.equals(key)) {
+            publish(this.theme, getTheme());
+        } else if (KEY_FONT.equals(key)) {
+            publish(this.font, getFont());
+        }
+    };
+
+    private AppSettings(Context context) {
+        prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        theme = new MutableLiveData<>(getTheme());
+        font = new MutableLiveData<>(getFont());
+        prefs.registerOnSharedPreferenceChangeListener(listener);
+    }
+
+    public static synchronized AppSettings getInstance(Context context) {
+        if (instance == null) {
+            instance = new AppSettings(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    @NonNull
+    public String getTheme() {
+        return prefs.getString(KEY_THEME, THEME_LIGHT);
+    }
+
+    @NonNull
+    public String getFont() {
+        return prefs.getString(KEY_FONT, FontCache.DEFAULT_FONT);
+    }
+
+    @NonNull
+    public NoteSort getSort() {
+        return NoteSort.fromName(prefs.getString(KEY_SORT, null));
+    }
+
+    /**
+     * Тема оформления; значение приходит на главном потоке после каждого изменения.
+     */
+    @NonNull
+    public LiveData<String> theme() {
+        return theme;
+    }
+
+    /**
+     * Имя файла шрифта из assets/fonts.
+     */
+    @NonNull
+    public LiveData<String> font() {
+        return font;
+    }
+
+    public void setAppearance(@NonNull String fontFile, @NonNull String themeName) {
+        prefs.edit()
+                .putString(KEY_FONT, fontFile)
+                .putString(KEY_THEME, themeName)
+                .apply();
+    }
+
+    public void setSort(@NonNull NoteSort sort) {
+        prefs.edit().putString(KEY_SORT, sort.name()).apply();
+    }
+
+    /**
+     * Стиль активности для темы из настроек.
+     */
+    @StyleRes
+    public static int themeStyle(@Nullable String themeName) {
+        if (THEME_DARK.equals(themeName)) return R.style.Theme_Dark;
+        if (THEME_BLUE.equals(themeName)) return R.style.Theme_Blue;
+        return R.style.Theme_Light;
+    }
+
+    // Одинаковое значение не рассылаем — наблюдатели не перерисовываются зря
+    private static void publish(MutableLiveData<String> live, String value) {
+        if (!value.equals(live.getValue())) {
+            live.setValue(value);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.notes.util;
+
+import android.content.Context;
+import android.graphics.Typeface;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кэш шрифтов из assets/fonts на весь процесс.
+ * Разбор variable-font TTF дорогой, поэтому каждый файл парсится один раз,
+ * а выбранный в настройках шрифт заранее прогревается в фоне при старте приложения.
+ */
+public final class FontCache {
+
+    // Шрифт по умолчанию (имя файла в assets/fonts/)
+    public static final String DEFAULT_FONT = "roboto_variablefont.ttf";
+
+    private static final ConcurrentHashMap<String, Typeface> cache = new ConcurrentHashMap<>();
+
+    private FontCache() {
+    }
+
+    /**
+     * Возвращает шрифт по имени файла. Если шрифт сейчас грузится в фоне,
+     * ждёт окончания разбора вместо повторного парсинга.
+     * При ошибке возвращает стандартный шрифт.
+     */
+    @NonNull
+    public static Typeface get(@NonNull Context context, @NonNull String fontFile) {
+        Context appContext = context.getApplicationContext();
+        return cache.computeIfAbsent(fontFile, file -> {
+            try {
+                return Typeface.createFromAsset(appContext.getAssets(), "fonts/" + file);
+            } catch (Exception e) {
+                // Если шрифт не найден или ошибка — используем стандартный
+                return Typeface.DEFAULT;
+            }
+        });
+    }
+
+    /**
+     * Разбирает шрифт в фоновом потоке, чтобы первая активность получила его из кэша.
+     */
+    public static void preload(@NonNull Context context, @NonNull String fontFile) {
+        if (cache.containsKey(fontFile)) return;
+
+        Context appContext = context.getApplicationContext();
+        Thread thread = new Thread(() -> get(appContext, fontFile), "font-preload");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.notes.util;
+
+import android.app.Activity;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.notes.metrics.Metrics;
+
+/**
+ * Маркеры холодного старта для systrace / Perfetto.
+ * Асинхронная секция "startup:first-notes" тянется от Application.onCreate
+ * до кадра с первой страницей заметок; время до этого кадра пишется в лог.
+ */
+public final class StartupTrace {
+
+    private static final String TAG = "StartupTrace";
+    private static final String FIRST_NOTES_SECTION = "startup:first-notes";
+    private static final int FIRST_NOTES_COOKIE = 1;
+
+    private static boolean started;
+    private static boolean reported;
+
+    private StartupTrace() {
+    }
+
+    /**
+     * Начало отсчёта (Application.onCreate, главный поток).
+     */
+    public static void begin() {
+        if (started) return;
+        started = true;
+        Trace.beginAsyncSection(FIRST_NOTES_SECTION, FIRST_NOTES_COOKIE);
+    }
+
+    /**
+     * Первая страница заметок на экране (главный поток). Срабатывает один раз за процесс:
+     * повторное создание MainActivity — уже не холодный старт.
+     */
+    public static void firstNotesDrawn(@NonNull Activity activity) {
+        if (reported) return;
+        reported = true;
+
+        activity.reportFullyDrawn();
+        if (started) {
+            Trace.endAsyncSection(FIRST_NOTES_SECTION, FIRST_NOTES_COOKIE);
+        }
+        long sinceProcessStart = SystemClock.uptimeMillis() - Process.getStartUptimeMillis();
+        Metrics.record("startup.first_notes.ms", sinceProcessStart);
+        Log.i(TAG, "Первая страница заметок через " + sinceProcessStart + " мс после запуска процесса");
+    }
+}
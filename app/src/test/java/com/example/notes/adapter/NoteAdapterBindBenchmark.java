@@ -0,0 +1,92 @@
+package com.example.notes.adapter;
+
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.appcompat.view.ContextThemeWrapper;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.notes.R;
+import com.example.notes.benchmark.BenchmarkReport;
+import com.example.notes.benchmark.LatencyRecorder;
+import com.example.notes.benchmark.NoteFixtures;
+import com.example.notes.data.db.NoteSummary;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Стоимость привязки строки списка: bind() и bind() + measure() карточки item_note,
+ * с обычным setText и с превью, заранее разложенным в фоне (PreviewTextCache).
+ * Нативная графика Robolectric даёт настоящую раскладку текста.
+ * Порог проверяется только при явном запуске бенчмарков (см. NoteFixtures.budgetsEnabled).
+ * Отчёт — build/reports/benchmarks/note-adapter.csv.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class NoteAdapterBindBenchmark {
+
+    private static final int ROWS = 2000;
+    private static final int SCREEN_WIDTH_PX = 1080;
+
+    // Порог p99 на привязку с раскладкой — половина кадра 60 Гц
+    private static final long BUDGET_BIND_MEASURE_US = 8_000;
+
+    @Test
+    public void bindCost() throws IOException {
+        Context context = new ContextThemeWrapper(
+                ApplicationProvider.getApplicationContext(), R.style.Theme_Light);
+        NoteAdapter adapter = new NoteAdapter(note -> { }, note -> { });
+        NoteAdapter.NoteViewHolder holder = adapter.onCreateViewHolder(new FrameLayout(context), 0);
+
+        Random random = new Random(7);
+        List<NoteSummary> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            NoteSummary row = new NoteSummary();
+            row.id = i + 1;
+            row.title = NoteFixtures.text(random, 8 + random.nextInt(40));
+            String body = NoteFixtures.text(random, NoteFixtures.bodyLength(random));
+            row.preview = body.substring(0, Math.min(body.length(), NoteSummary.PREVIEW_LENGTH));
+            row.important = random.nextInt(10) == 0;
+            rows.add(row);
+        }
+
+        int widthSpec = View.MeasureSpec.makeMeasureSpec(SCREEN_WIDTH_PX, View.MeasureSpec.EXACTLY);
+        int heightSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+
+        BenchmarkReport report = new BenchmarkReport("note-adapter", ROWS);
+        report.add(LatencyRecorder.measure("bind", ROWS, i -> adapter.bind(holder, rows.get(i))));
+        LatencyRecorder bindMeasure = report.add(LatencyRecorder.measure("bind+measure", ROWS, i -> {
+            adapter.bind(holder, rows.get(i));
+            holder.itemView.measure(widthSpec, heightSpec);
+        }));
+
+        // Раскладка превью, как её делает поток страниц до попадания в адаптер
+        for (NoteSummary row : rows) {
+            adapter.previewCache.precompute(row);
+        }
+        LatencyRecorder precomputed = report.add(LatencyRecorder.measure("bind+measure precomputed", ROWS, i -> {
+            adapter.bind(holder, rows.get(i));
+            holder.itemView.measure(widthSpec, heightSpec);
+        }));
+        report.write();
+        if (!NoteFixtures.budgetsEnabled()) return;
+
+        long p99 = bindMeasure.percentileMicros(99);
+        assertTrue("bind+measure p99 = " + p99 + " мкс, порог " + BUDGET_BIND_MEASURE_US + " мкс",
+                p99 <= BUDGET_BIND_MEASURE_US);
+        long precomputedP99 = precomputed.percentileMicros(99);
+        assertTrue("bind+measure precomputed p99 = " + precomputedP99 + " мкс, порог " + BUDGET_BIND_MEASURE_US + " мкс",
+                precomputedP99 <= BUDGET_BIND_MEASURE_US);
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.notes.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.appcompat.view.ContextThemeWrapper;
+import androidx.paging.PagingSource;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.notes.R;
+import com.example.notes.benchmark.BenchmarkReport;
+import com.example.notes.benchmark.LatencyRecorder;
+import com.example.notes.benchmark.NoteFixtures;
+import com.example.notes.benchmark.WorkloadProfile;
+import com.example.notes.data.NoteCache;
+import com.example.notes.data.db.AppDatabase;
+import com.example.notes.data.db.Note;
+import com.example.notes.data.db.NoteDao;
+import com.example.notes.data.db.NoteSummary;
+import com.example.notes.data.paging.FirstPagePrefetch;
+import com.example.notes.data.paging.NoteKeysetPagingSource;
+import com.example.notes.data.paging.NotePageKey;
+import com.example.notes.data.paging.NoteSort;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Нагрузочные сценарии на базе тяжёлого пользователя: база заполняется детерминированно
+ * (профиль и seed), затем по сценарию выполняются шаги экрана списка и экрана заметки
+ * через настоящие NoteKeysetPagingSource, NoteDao и NoteAdapter (bind + measure карточки).
+ *
+ * Запускается только при заданном notes.workload.profile (small, typical, heavy), например:
+ *   ./gradlew testDebugUnitTest --tests '*WorkloadScenarioBenchmark' -Pnotes.workload.profile=heavy
+ * Прочие свойства: notes.workload.seed, notes.workload.sort (имя NoteSort),
+ * notes.workload.script — шаги через запятую, по умолчанию DEFAULT_SCRIPT:
+ *   open-list:N — N раз открыть список (первая страница и видимые строки),
+ *   scroll:N — прокрутить N строк от начала, догружая страницы,
+ *   open:N — открыть N случайных заметок с полным текстом,
+ *   edit:N — N раз изменить и сохранить случайную заметку.
+ * Отчёт — build/reports/benchmarks/workload-&lt;профиль&gt;.csv, строка на шаг сценария.
+ * Лежит рядом с NoteAdapterBindBenchmark ради доступа к NoteAdapter.bind.
+ */
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class WorkloadScenarioBenchmark {
+
+    private static final String DEFAULT_SCRIPT = "open-list:20,scroll:3000,open:300,edit:100";
+    private static final long DEFAULT_SEED = 42;
+
+    private static final int SCREEN_WIDTH_PX = 1080;
+    private static final int VISIBLE_ROWS = 12;
+
+    private WorkloadProfile profile;
+    private NoteSort sort;
+    private AppDatabase db;
+    private NoteDao noteDao;
+    private NoteCache noteCache;
+    private NoteAdapter adapter;
+    private NoteAdapter.NoteViewHolder holder;
+    private Random random;
+
+    private final int widthSpec = View.MeasureSpec.makeMeasureSpec(SCREEN_WIDTH_PX, View.MeasureSpec.EXACTLY);
+    private final int heightSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+
+    @Before
+    public void setUp() {
+        assumeTrue("нагрузочные сценарии включаются свойством notes.workload.profile",
+                System.getProperty("notes.workload.profile") != null);
+        profile = WorkloadProfile.fromProperty();
+        sort = NoteSort.fromName(System.getProperty("notes.workload.sort"));
+        long seed = Long.parseLong(System.getProperty("notes.workload.seed", String.valueOf(DEFAULT_SEED)));
+        random = new Random(seed);
+
+        Context context = ApplicationProvider.getApplicationContext();
+        db = AppDatabase.inMemory(context);
+        noteDao = db.noteDao();
+        noteCache = new NoteCache(NoteCache.defaultMaxBytes());
+        long start = System.nanoTime();
+        NoteFixtures.seed(db, profile, seed);
+        System.out.println("workload " + profile + ": " + profile.notes + " заметок за "
+                + (System.nanoTime() - start) / 1_000_000 + " мс");
+
+        Context themed = new ContextThemeWrapper(context, R.style.Theme_Light);
+        adapter = new NoteAdapter(note -> { }, note -> { });
+        holder = adapter.onCreateViewHolder(new FrameLayout(themed), 0);
+    }
+
+    @After
+    public void tearDown() {
+        if (db != null) db.close();
+    }
+
+    @Test
+    public void runScript() throws Exception {
+        String script = System.getProperty("notes.workload.script", DEFAULT_SCRIPT);
+        BenchmarkReport report = new BenchmarkReport("workload-" + profile.name().toLowerCase(Locale.ROOT), profile.notes);
+
+        for (String step : script.split(",")) {
+            String[] parts = step.trim().split(":");
+            String name = parts[0];
+            int count = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+            switch (name) {
+                case "open-list":
+                    report.add(openList(count));
+                    break;
+                case "scroll":
+                    scroll(count, report);
+                    break;
+                case "open":
+                    report.add(LatencyRecorder.measure("open", count, i -> openNote(randomId())));
+                    break;
+                case "edit":
+                    report.add(LatencyRecorder.measure("edit", count, i -> editNote(randomId(), i)));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Неизвестный шаг сценария: " + step);
+            }
+        }
+        report.write();
+    }
+
+    // === Шаги ===
+
+    // Холодное открытие списка: новый источник, первая загрузка и привязка видимых строк
+    private LatencyRecorder openList(int times) {
+        return LatencyRecorder.measure("open-list", times, i -> {
+            List<NoteSummary> page = load(newSource(), null);
+            for (int row = 0; row < Math.min(VISIBLE_ROWS, page.size()); row++) {
+                bindRow(page.get(row));
+            }
+        });
+    }
+
+    // Прокрутка: строка за строкой, страница догружается, когда кончаются загруженные
+    private void scroll(int rows, BenchmarkReport report) {
+        LatencyRecorder rowRecorder = report.add(new LatencyRecorder("scroll.row", rows));
+        LatencyRecorder pageRecorder = report.add(
+                new LatencyRecorder("scroll.page", rows / NoteKeysetPagingSource.PAGE_SIZE + 2));
+        NoteKeysetPagingSource source = newSource();
+
+        List<NoteSummary> loaded = new ArrayList<>(load(source, null));
+        NotePageKey nextKey = loaded.size() < NoteKeysetPagingSource.INITIAL_LOAD_SIZE
+                ? null : NotePageKey.of(loaded.get(loaded.size() - 1));
+        for (int row = 0; row < rows && row < loaded.size(); row++) {
+            NoteSummary note = loaded.get(row);
+            rowRecorder.time(row, i -> bindRow(note));
+
+            // Пейджер догружает страницу за PREFETCH_DISTANCE строк до конца
+            if (nextKey != null && row == loaded.size() - NoteKeysetPagingSource.PREFETCH_DISTANCE) {
+                NotePageKey key = nextKey;
+                List<NoteSummary> page = new ArrayList<>();
+                pageRecorder.time(row, i -> page.addAll(loadAppend(source, key)));
+                loaded.addAll(page);
+                nextKey = page.size() < NoteKeysetPagingSource.PAGE_SIZE
+                        ? null : NotePageKey.of(page.get(page.size() - 1));
+            }
+        }
+    }
+
+    // Экран заметки: строка и полный текст (как дочитывание кусков до конца)
+    private void openNote(long id) {
+        Note note = noteDao.getById(id);
+        noteDao.loadFullContent(note);
+    }
+
+    // Сохранение правки: текст уже открыт в редакторе, запись — как у NoteRepository.applyEdit
+    private void editNote(long id, int iteration) {
+        String content = noteDao.loadFullContent(noteDao.getById(id));
+        int at = content.isEmpty() ? 0 : random.nextInt(content.length());
+        String edited = content.substring(0, at) + " правка " + iteration + " " + content.substring(at);
+        noteDao.applyEdit(id, null, edited, null, System.currentTimeMillis());
+    }
+
+    // === Вспомогательное ===
+
+    private NoteKeysetPagingSource newSource() {
+        return new NoteKeysetPagingSource(noteDao, sort, db.getInvalidationTracker(), Runnable::run,
+                noteCache, new FirstPagePrefetch(noteCache::epoch));
+    }
+
+    private List<NoteSummary> load(NoteKeysetPagingSource source, NotePageKey key) {
+        return page(source, new PagingSource.LoadParams.Refresh<>(
+                key, NoteKeysetPagingSource.INITIAL_LOAD_SIZE, false));
+    }
+
+    private List<NoteSummary> loadAppend(NoteKeysetPagingSource source, NotePageKey key) {
+        return page(source, new PagingSource.LoadParams.Append<>(key, NoteKeysetPagingSource.PAGE_SIZE, false));
+    }
+
+    private static List<NoteSummary> page(NoteKeysetPagingSource source, PagingSource.LoadParams<NotePageKey> params) {
+        try {
+            PagingSource.LoadResult<NotePageKey, NoteSummary> result = source.loadFuture(params).get();
+            assertEquals(PagingSource.LoadResult.Page.class, result.getClass());
+            return ((PagingSource.LoadResult.Page<NotePageKey, NoteSummary>) result).getData();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void bindRow(NoteSummary note) {
+        adapter.bind(holder, note);
+        holder.itemView.measure(widthSpec, heightSpec);
+    }
+
+    // id заметок в свежезаполненной базе идут подряд с 1
+    private long randomId() {
+        return 1 + random.nextInt(profile.notes);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.notes.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Сводка бенчмарка: печатается в лог теста и дописывается в
+ * build/reports/benchmarks/&lt;suite&gt;.csv, чтобы сравнивать прогоны между сборками.
+ */
+public final class BenchmarkReport {
+
+    private static final File REPORT_DIR = new File("build/reports/benchmarks");
+    private static final String HEADER = "suite,size,operation,count,p50_us,p99_us,alloc_bytes_per_op,ops_per_s";
+
+    private final String suite;
+    private final int size;
+    private final List<LatencyRecorder> results = new ArrayList<>();
+
+    public BenchmarkReport(String suite, int size) {
+        this.suite = suite;
+        this.size = size;
+    }
+
+    public LatencyRecorder add(LatencyRecorder recorder) {
+        results.add(recorder);
+        return recorder;
+    }
+
+    /**
+     * Печатает результаты и дописывает их в CSV-отчёт набора.
+     */
+    public void write() throws IOException {
+        if (!REPORT_DIR.isDirectory() && !REPORT_DIR.mkdirs()) {
+            throw new IOException("Не удалось создать " + REPORT_DIR);
+        }
+        File file = new File(REPORT_DIR, suite + ".csv");
+        boolean newFile = !file.exists();
+
+        try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
+            if (newFile) {
+                out.println(HEADER);
+            }
+            for (LatencyRecorder result : results) {
+                String line = String.format(Locale.ROOT, "%s,%d,%s,%d,%d,%d,%d,%d",
+                        suite, size, result.name(), result.count(),
+                        result.percentileMicros(50), result.percentileMicros(99),
+                        result.allocatedBytesPerOp(), result.opsPerSecond());
+                out.println(line);
+                System.out.println(line);
+            }
+        }
+    }
+}
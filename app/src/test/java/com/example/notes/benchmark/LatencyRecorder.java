@@ -0,0 +1,96 @@
+package com.example.notes.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Замеры одной операции: задержка каждого вызова и выделенная память на вызов.
+ * Аллокации считаются через com.sun.management.ThreadMXBean (HotSpot/OpenJDK).
+ */
+public final class LatencyRecorder {
+
+    /**
+     * Замеряемая операция.
+     */
+    public interface Operation {
+        void run(int iteration);
+    }
+
+    private final String name;
+    private final long[] samplesNanos;
+    private int count;
+    private long totalNanos;
+    private long allocatedBytes;
+
+    public LatencyRecorder(String name, int capacity) {
+        this.name = name;
+        this.samplesNanos = new long[capacity];
+    }
+
+    /**
+     * Выполняет операцию iterations раз и записывает задержку каждого вызова.
+     */
+    public static LatencyRecorder measure(String name, int iterations, Operation operation) {
+        LatencyRecorder recorder = new LatencyRecorder(name, iterations);
+        for (int i = 0; i < iterations; i++) {
+            recorder.time(i, operation);
+        }
+        return recorder;
+    }
+
+    /**
+     * Выполняет операцию один раз и записывает её задержку и аллокации
+     * (для сценариев, где операции перемежаются с другой работой).
+     */
+    public void time(int iteration, Operation operation) {
+        long allocBefore = threadAllocatedBytes();
+        long start = System.nanoTime();
+        operation.run(iteration);
+        long elapsed = System.nanoTime() - start;
+        long allocAfter = threadAllocatedBytes();
+        record(elapsed, allocAfter - allocBefore);
+    }
+
+    public void record(long elapsedNanos, long allocated) {
+        samplesNanos[count++] = elapsedNanos;
+        totalNanos += elapsedNanos;
+        if (allocated > 0) {
+            allocatedBytes += allocated;
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long percentileMicros(double percentile) {
+        if (count == 0) return 0;
+        long[] sorted = Arrays.copyOf(samplesNanos, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))] / 1000;
+    }
+
+    /**
+     * Пропускная способность: операций в секунду чистого времени операций.
+     */
+    public long opsPerSecond() {
+        return totalNanos == 0 ? 0 : count * 1_000_000_000L / totalNanos;
+    }
+
+    public long allocatedBytesPerOp() {
+        return count == 0 ? 0 : allocatedBytes / count;
+    }
+
+    private static long threadAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.notes.benchmark;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.notes.data.db.AppDatabase;
+import com.example.notes.data.db.Note;
+import com.example.notes.data.db.NoteDao;
+import com.example.notes.data.search.NoteSearch;
+import com.example.notes.data.search.TitleTrigramSearch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Бенчмарк операций NoteDao на in-memory AppDatabase под Robolectric.
+ * Размеры базы задаются свойством notes.benchmark.sizes, например
+ *   ./gradlew testDebugUnitTest --tests '*NoteDaoBenchmark' -Pnotes.benchmark.sizes=1000,10000,100000
+ * Только в таком запуске проверяются пороги времени; без свойства бенчмарк идёт
+ * на базе в 1k заметок ради планов запросов и отчёта.
+ * Отчёт — build/reports/benchmarks/note-dao.csv.
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+public class NoteDaoBenchmark {
+
+    private static final long SEED = 42;
+    private static final int PAGE_SIZE = 50;
+    private static final int WRITE_ITERATIONS = 200;
+
+    // getAll() читает всю таблицу целиком — на больших базах это и есть проблема, которую меряем отдельно
+    private static final int GET_ALL_MAX_SIZE = 10_000;
+
+    // Пороги p99 в микросекундах: при явном запуске бенчмарка превышение валит сборку
+    private static final long BUDGET_GET_BY_ID_US = 5_000;
+    private static final long BUDGET_PAGE_US = 20_000;
+    private static final long BUDGET_INSERT_US = 10_000;
+    private static final long BUDGET_UPDATE_US = 20_000;
+    private static final long BUDGET_DELETE_US = 10_000;
+    // Поиск по мере набора должен успевать за кадр
+    private static final long BUDGET_SEARCH_TITLES_US = 16_000;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "notes={0}")
+    public static List<Object[]> sizes() {
+        return NoteFixtures.sizesFromProperty();
+    }
+
+    private final int size;
+    private AppDatabase db;
+    private NoteDao noteDao;
+
+    public NoteDaoBenchmark(int size) {
+        this.size = size;
+    }
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        db = AppDatabase.inMemory(context);
+        noteDao = db.noteDao();
+        NoteFixtures.seed(db, size, SEED);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void daoOperations() throws IOException {
+        BenchmarkReport report = new BenchmarkReport("note-dao", size);
+        Random random = new Random(SEED + size);
+
+        // Прогрев: JIT и кэш подготовленных выражений
+        for (int i = 0; i < 50; i++) {
+            noteDao.getById(1 + random.nextInt(size));
+            noteDao.getFirstPage(PAGE_SIZE);
+        }
+
+        LatencyRecorder getById = report.add(LatencyRecorder.measure("getById", 500,
+                i -> noteDao.getById(1 + random.nextInt(size))));
+        LatencyRecorder firstPage = report.add(LatencyRecorder.measure("getFirstPage", 200,
+                i -> noteDao.getFirstPage(PAGE_SIZE)));
+        LatencyRecorder pageBefore = report.add(LatencyRecorder.measure("getPageBefore", 200,
+                i -> noteDao.getPageBefore(1 + random.nextInt(size), PAGE_SIZE)));
+
+        // Сортировки по времени правки: ключ — случайная заметка (готовим заранее, вне замера)
+        List<Note> keys = new ArrayList<>(200);
+        for (int i = 0; i < 200; i++) {
+            keys.add(noteDao.getById(1 + random.nextInt(size)));
+        }
+        LatencyRecorder editedPage = report.add(LatencyRecorder.measure("getEditedPageBefore", 200, i -> {
+            Note key = keys.get(i);
+            noteDao.getEditedPageBefore(key.updatedAt, key.id, PAGE_SIZE);
+        }));
+        LatencyRecorder importantFirstPage = report.add(LatencyRecorder.measure(
+                "getImportantFirstPageBefore", 200, i -> {
+                    Note key = keys.get(i);
+                    noteDao.getImportantFirstPageBefore(key.important, key.updatedAt, key.id, PAGE_SIZE);
+                }));
+        LatencyRecorder importantOnlyPage = report.add(LatencyRecorder.measure(
+                "getImportantOnlyPageBefore", 200, i -> {
+                    Note key = keys.get(i);
+                    noteDao.getImportantOnlyPageBefore(key.updatedAt, key.id, PAGE_SIZE);
+                }));
+        if (size <= GET_ALL_MAX_SIZE) {
+            report.add(LatencyRecorder.measure("getAll", 5, i -> noteDao.getAll()));
+        }
+
+        // Поиск по мере набора: кусок заголовка случайной заметки, часть — с опечаткой
+        List<String> queries = new ArrayList<>(200);
+        for (int i = 0; i < 200; i++) {
+            queries.add(typedQuery(random, noteDao.getById(1 + random.nextInt(size)).title));
+        }
+        LatencyRecorder searchTitles = report.add(LatencyRecorder.measure("searchTitleTrigram", 200,
+                i -> TitleTrigramSearch.search(noteDao, queries.get(i), () -> false)));
+        // Полный поиск (FTS + триграммы) — для сравнения, без порога: префиксы частых слов FTS
+        // в синтетическом словаре совпадают с большей частью базы
+        report.add(LatencyRecorder.measure("search", 200, i -> NoteSearch.search(noteDao, queries.get(i))));
+
+        // Данные для записей готовим заранее, чтобы генерация текста не попала в замер.
+        // Правки — теми же точечными обновлениями колонок, которыми сохраняет редактор
+        List<Note> toInsert = new ArrayList<>(WRITE_ITERATIONS);
+        List<Note> toUpdate = new ArrayList<>(WRITE_ITERATIONS);
+        List<String> titles = new ArrayList<>(WRITE_ITERATIONS);
+        List<String> contents = new ArrayList<>(WRITE_ITERATIONS);
+        for (int i = 0; i < WRITE_ITERATIONS; i++) {
+            toInsert.add(NoteFixtures.randomNote(random));
+            toUpdate.add(noteDao.getById(1 + random.nextInt(size)));
+            titles.add(NoteFixtures.text(random, 8 + random.nextInt(40)).replace('\n', ' '));
+            contents.add(NoteFixtures.text(random, NoteFixtures.bodyLength(random)));
+        }
+
+        // Вставка и удаление — тем же путём, что у приложения: insertNote с кусками, хешем и
+        // триграммами; удаление — надгробие, затем очистка с каскадом и триггерами индексов
+        LatencyRecorder insert = report.add(LatencyRecorder.measure("insertNote", WRITE_ITERATIONS,
+                i -> noteDao.insertNote(toInsert.get(i))));
+        LatencyRecorder updateTitle = report.add(LatencyRecorder.measure("updateTitle", WRITE_ITERATIONS,
+                i -> noteDao.updateTitle(toUpdate.get(i).id, titles.get(i))));
+        LatencyRecorder updateContent = report.add(LatencyRecorder.measure("updateContent", WRITE_ITERATIONS,
+                i -> noteDao.updateContent(toUpdate.get(i).id, contents.get(i))));
+        LatencyRecorder updateImportant = report.add(LatencyRecorder.measure("updateImportant", WRITE_ITERATIONS,
+                i -> noteDao.updateImportant(toUpdate.get(i).id, !toUpdate.get(i).important)));
+        long deletedAt = System.currentTimeMillis();
+        LatencyRecorder softDelete = report.add(LatencyRecorder.measure("softDelete", WRITE_ITERATIONS,
+                i -> noteDao.softDelete(List.of(toInsert.get(i).id), deletedAt)));
+        LatencyRecorder purge = report.add(LatencyRecorder.measure("purgeDeleted", WRITE_ITERATIONS,
+                i -> noteDao.purgeDeleted(deletedAt, 1)));
+
+        report.write();
+
+        assertWithinBudget(getById, BUDGET_GET_BY_ID_US);
+        assertWithinBudget(firstPage, BUDGET_PAGE_US);
+        assertWithinBudget(pageBefore, BUDGET_PAGE_US);
+        assertWithinBudget(editedPage, BUDGET_PAGE_US);
+        assertWithinBudget(importantFirstPage, BUDGET_PAGE_US);
+        assertWithinBudget(importantOnlyPage, BUDGET_PAGE_US);
+        assertWithinBudget(insert, BUDGET_INSERT_US);
+        assertWithinBudget(updateTitle, BUDGET_UPDATE_US);
+        assertWithinBudget(updateContent, BUDGET_UPDATE_US);
+        assertWithinBudget(updateImportant, BUDGET_UPDATE_US);
+        assertWithinBudget(softDelete, BUDGET_DELETE_US);
+        assertWithinBudget(purge, BUDGET_DELETE_US);
+        assertWithinBudget(searchTitles, BUDGET_SEARCH_TITLES_US);
+    }
+
+    /**
+     * Страницы сортировок читаются диапазоном по индексу: в плане запроса
+     * нет временного B-дерева для ORDER BY и нет полного сканирования notes.
+     */
+    @Test
+    public void sortedPagesUseIndexes() {
+        String[] queries = {
+                NoteDao.EDITED_PAGE_BEFORE_SQL,
+                NoteDao.IMPORTANT_FIRST_PAGE_BEFORE_SQL,
+                NoteDao.IMPORTANT_ONLY_PAGE_BEFORE_SQL,
+        };
+        for (String query : queries) {
+            String plan = queryPlan(bind(query));
+            assertFalse(query + "\n" + plan, plan.contains("TEMP B-TREE"));
+            assertTrue(query + "\n" + plan, plan.contains("USING INDEX") || plan.contains("USING COVERING INDEX"));
+        }
+
+        // Порядок по id: фильтр живых заметок не должен уводить выборку с rowid-порядка
+        String byId = queryPlan(bind(NoteDao.PAGE_BEFORE_SQL));
+        assertFalse(byId, byId.contains("TEMP B-TREE"));
+    }
+
+    /**
+     * Триграммный поиск не сканирует индекс целиком: кандидаты — по списку триграммы,
+     * подсчёт общих триграмм — точечно по ключам.
+     */
+    @Test
+    public void trigramLookupsUseIndexes() {
+        String[] queries = {
+                bind(NoteDao.TRIGRAM_CANDIDATES_SQL),
+                "SELECT note_id, COUNT(*) AS shared FROM title_trigrams "
+                        + "WHERE trigram IN (1, 2, 3) AND note_id IN (1, 2, 3) GROUP BY note_id",
+        };
+        for (String query : queries) {
+            String plan = queryPlan(query);
+            assertFalse(query + "\n" + plan, plan.contains("SCAN"));
+        }
+    }
+
+    // От 3 до 8 символов заголовка подряд; в трети запросов одна буква заменена
+    private static String typedQuery(Random random, String title) {
+        int length = Math.min(title.length(), 3 + random.nextInt(6));
+        int start = random.nextInt(title.length() - length + 1);
+        char[] query = title.substring(start, start + length).toCharArray();
+        if (random.nextInt(3) == 0) {
+            query[random.nextInt(query.length)] = 'ы';
+        }
+        return new String(query);
+    }
+
+    // Параметры Room (:name) заменяем единицей — для плана важна форма условий, а не значения
+    private static String bind(String query) {
+        return query.replaceAll(":\\w+", "1");
+    }
+
+    private String queryPlan(String query) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = db.getOpenHelper().getReadableDatabase().query("EXPLAIN QUERY PLAN " + query)) {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detail)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+
+    private void assertWithinBudget(LatencyRecorder recorder, long budgetMicros) {
+        if (!NoteFixtures.budgetsEnabled()) return;
+        long p99 = recorder.percentileMicros(99);
+        assertTrue(recorder.name() + " p99 = " + p99 + " мкс при " + size
+                        + " заметках, порог " + budgetMicros + " мкс",
+                p99 <= budgetMicros);
+    }
+}
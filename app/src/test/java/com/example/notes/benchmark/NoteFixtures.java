@@ -0,0 +1,136 @@
+package com.example.notes.benchmark;
+
+import com.example.notes.data.db.AppDatabase;
+import com.example.notes.data.db.Note;
+import com.example.notes.data.db.NoteDao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Детерминированные тестовые заметки с реалистичным распределением размеров:
+ * большинство заметок короткие, заметная доля средних и хвост из длинных
+ * (вставленные логи и документы).
+ */
+public final class NoteFixtures {
+
+    // Сколько вставок делаем в одной транзакции при заполнении базы
+    private static final int SEED_CHUNK = 1000;
+
+    // Фиксированное «сейчас» для времени заметок, чтобы прогоны были воспроизводимы
+    private static final long BASE_TIME_MS = 1_767_225_600_000L;  // 2026-01-01 UTC
+    private static final long YEAR_MS = 365L * 24 * 60 * 60 * 1000;
+
+    private static final String SIZES_PROPERTY = "notes.benchmark.sizes";
+    private static final String DEFAULT_SIZES = "1000";
+
+    private static final String[] WORDS = {
+            "заметка", "список", "покупки", "молоко", "встреча", "завтра", "проект",
+            "отчёт", "идея", "позвонить", "важно", "черновик", "todo", "release",
+            "build", "error", "timeout", "retry", "fixed", "v2", "пятница", "план"
+    };
+
+    private NoteFixtures() {
+    }
+
+    /**
+     * Размер тела заметки: 80% — до 400 символов, 17% — 1–6 КБ, 3% — 16–64 КБ.
+     */
+    public static int bodyLength(Random random) {
+        return WorkloadProfile.TYPICAL.bodyLength(random);
+    }
+
+    /**
+     * Текст из слов словаря с переводами строк, ровно length символов.
+     */
+    public static String text(Random random, int length) {
+        StringBuilder text = new StringBuilder(length + 16);
+        int wordsInLine = 0;
+        while (text.length() < length) {
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+            if (++wordsInLine >= 8 + random.nextInt(8)) {
+                text.append('\n');
+                wordsInLine = 0;
+            } else {
+                text.append(' ');
+            }
+        }
+        text.setLength(length);
+        return text.toString();
+    }
+
+    public static Note randomNote(Random random) {
+        return randomNote(random, WorkloadProfile.TYPICAL);
+    }
+
+    public static Note randomNote(Random random, WorkloadProfile profile) {
+        Note note = new Note();
+        note.title = text(random, 8 + random.nextInt(40)).replace('\n', ' ');
+        note.content = text(random, profile.bodyLength(random));
+        note.important = profile.important(random);
+        // Правки разбросаны по последнему году — для сортировок по времени
+        note.createdAt = BASE_TIME_MS - (long) (random.nextDouble() * YEAR_MS);
+        note.updatedAt = note.createdAt + (long) (random.nextDouble() * (BASE_TIME_MS - note.createdAt));
+        return note;
+    }
+
+    /**
+     * Заполняет базу count заметками, порциями в отдельных транзакциях,
+     * чтобы не держать в памяти все тела сразу.
+     */
+    public static void seed(AppDatabase db, int count, long seed) {
+        seed(db, count, WorkloadProfile.TYPICAL, seed);
+    }
+
+    /**
+     * Заполняет базу заметками профиля; при одинаковых seed и профиле база получается та же.
+     */
+    public static void seed(AppDatabase db, WorkloadProfile profile, long seed) {
+        seed(db, profile.notes, profile, seed);
+    }
+
+    private static void seed(AppDatabase db, int count, WorkloadProfile profile, long seed) {
+        Random random = new Random(seed);
+        NoteDao noteDao = db.noteDao();
+        int inserted = 0;
+        while (inserted < count) {
+            int chunk = Math.min(SEED_CHUNK, count - inserted);
+            List<Note> notes = new ArrayList<>(chunk);
+            for (int i = 0; i < chunk; i++) {
+                notes.add(randomNote(random, profile));
+            }
+            db.runInTransaction(() -> {
+                for (Note note : notes) {
+                    noteDao.insertNote(note);
+                }
+            });
+            inserted += chunk;
+        }
+    }
+
+    /**
+     * Размеры баз из системного свойства notes.benchmark.sizes (через запятую).
+     * Без свойства — одна небольшая база: обычная сборка проверяет, что бенчмарки
+     * работают и планы запросов верны, но не меряет большие базы.
+     */
+    public static List<Object[]> sizesFromProperty() {
+        String property = System.getProperty(SIZES_PROPERTY, DEFAULT_SIZES);
+        List<Object[]> sizes = new ArrayList<>();
+        for (String size : property.split(",")) {
+            if (!size.trim().isEmpty()) {
+                sizes.add(new Object[]{Integer.parseInt(size.trim())});
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * Проверять ли пороги времени: только при явном запуске бенчмарков (задан notes.benchmark.sizes).
+     * Под Robolectric на общем CI время плавает, и порог, выставленный для выделенной машины,
+     * валил бы обычную сборку.
+     */
+    public static boolean budgetsEnabled() {
+        return System.getProperty(SIZES_PROPERTY) != null;
+    }
+}
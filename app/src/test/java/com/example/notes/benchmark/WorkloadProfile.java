@@ -0,0 +1,52 @@
+package com.example.notes.benchmark;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Профиль нагрузки для заполнения базы: сколько заметок, как распределены
+ * размеры тел (короткие / средние 1–6 КБ / длинные 16–64 КБ) и доля важных.
+ * Выбирается свойством notes.workload.profile.
+ */
+public enum WorkloadProfile {
+
+    // Быстрая проверка сценариев
+    SMALL(1_000, 80, 17, 10),
+
+    // Распределение NoteFixtures, база среднего пользователя
+    TYPICAL(20_000, 80, 17, 10),
+
+    // Тяжёлые пользователи: сотни тысяч заметок, больше длинных тел, много важных
+    HEAVY(200_000, 65, 31, 35);
+
+    public final int notes;
+    private final int shortPercent;
+    private final int mediumPercent;
+    private final int importantPercent;
+
+    WorkloadProfile(int notes, int shortPercent, int mediumPercent, int importantPercent) {
+        this.notes = notes;
+        this.shortPercent = shortPercent;
+        this.mediumPercent = mediumPercent;
+        this.importantPercent = importantPercent;
+    }
+
+    /**
+     * Профиль из системного свойства notes.workload.profile (без учёта регистра), по умолчанию TYPICAL.
+     */
+    public static WorkloadProfile fromProperty() {
+        String name = System.getProperty("notes.workload.profile", TYPICAL.name());
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public int bodyLength(Random random) {
+        int bucket = random.nextInt(100);
+        if (bucket < shortPercent) return 40 + random.nextInt(360);
+        if (bucket < shortPercent + mediumPercent) return 1024 + random.nextInt(5 * 1024);
+        return 16 * 1024 + random.nextInt(48 * 1024);
+    }
+
+    public boolean important(Random random) {
+        return random.nextInt(100) < importantPercent;
+    }
+}
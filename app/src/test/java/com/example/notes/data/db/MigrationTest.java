@@ -0,0 +1,77 @@
+package com.example.notes.data.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Миграции 1 → 12 на базе с большой заметкой: схема после миграций совпадает с выгруженной
+ * схемой Room (app/schemas), текст разрезан на те же куски, что дал бы NoteChunks.split,
+ * и находится поиском. Текст с суррогатными парами — на них расходятся кодовые точки SQLite
+ * и единицы UTF-16, которыми считает CHUNK_SIZE.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MigrationTest {
+
+    private static final String TEST_DB = "migration-test";
+    private static final String TITLE = "Миграция большой заметки";
+    private static final String TAIL_WORD = "хвостовоеслово";
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(), AppDatabase.class);
+
+    @Test
+    public void chunkedNoteSurvivesAllMigrations() throws IOException {
+        String content = longText();
+        try (SupportSQLiteDatabase v1 = helper.createDatabase(TEST_DB, 1)) {
+            v1.execSQL("INSERT INTO notes(id, title, content, important) VALUES (1, ?, ?, 1)",
+                    new Object[]{TITLE, content});
+        }
+
+        helper.runMigrationsAndValidate(TEST_DB, 12, true, Migrations.ALL).close();
+
+        Context context = ApplicationProvider.getApplicationContext();
+        AppDatabase db = Room.databaseBuilder(context, AppDatabase.class, TEST_DB)
+                .addMigrations(Migrations.ALL)
+                .allowMainThreadQueries()
+                .build();
+        helper.closeWhenFinished(db);
+        NoteDao noteDao = db.noteDao();
+
+        List<String> expected = NoteChunks.split(content);
+        Note note = noteDao.getById(1);
+        assertEquals(expected.size() - 1, note.chunkCount);
+        assertEquals(expected.get(0), note.content);
+        assertEquals(expected.subList(1, expected.size()), noteDao.getChunkTexts(1, 1, note.chunkCount));
+        assertEquals(content, noteDao.loadFullContent(note));
+        assertNotNull(note.syncId);
+
+        assertEquals(1, noteDao.search("Миграция", 10).size());
+        assertEquals(1, noteDao.searchBodies(TAIL_WORD, 10).size());
+    }
+
+    // Больше двух кусков; в каждой строке суррогатная пара, так что кодовых точек меньше, чем char
+    private static String longText() {
+        StringBuilder text = new StringBuilder();
+        for (int line = 0; text.length() < 2 * NoteChunks.CHUNK_SIZE + 1000; line++) {
+            text.append("строка ").append(line).append(" 😀\n");
+        }
+        return text.append(TAIL_WORD).toString();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.notes.data.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.notes.benchmark.NoteFixtures;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * История правок большой заметки: каждая версия восстанавливается точно,
+ * хранилище растёт с размером правок, число версий ограничено.
+ * Правки идут через NoteDao.applyEdit — тот же путь, что у NoteRepository.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class NoteHistoryTest {
+
+    private static final int BODY_CHARS = 40 * 1024;
+    private static final int EDITS = 120;
+
+    private AppDatabase db;
+    private NoteDao noteDao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        db = AppDatabase.inMemory(context);
+        noteDao = db.noteDao();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void revisionsReplayToExactTextAndStaySmall() {
+        Random random = new Random(23);
+        Note note = new Note();
+        note.title = "Большая заметка";
+        note.content = NoteFixtures.text(random, BODY_CHARS);
+        long id = noteDao.insertNote(note);
+
+        List<String> texts = new ArrayList<>();
+        texts.add(note.content);
+        String text = note.content;
+        for (int i = 0; i < EDITS; i++) {
+            // Правка в случайном месте: вставка строки и удаление пары слов
+            int at = random.nextInt(text.length());
+            int cut = Math.min(text.length(), at + random.nextInt(40));
+            String edited = text.substring(0, at) + "правка " + i + "\n" + text.substring(cut);
+            save(id, edited);
+            text = edited;
+            texts.add(text);
+        }
+
+        List<NoteRevisionInfo> revisions = noteDao.getRevisionInfos(id);
+        assertTrue("версий " + revisions.size(), revisions.size() >= NoteHistory.MAX_REVISIONS);
+        assertTrue("версий " + revisions.size(),
+                revisions.size() < NoteHistory.MAX_REVISIONS + NoteHistory.SNAPSHOT_INTERVAL);
+
+        // Версии хранятся с номера 1 (снимок исходного текста), rev - 1 — индекс в texts
+        long stored = 0;
+        for (NoteRevisionInfo revision : revisions) {
+            assertEquals(texts.get(revision.rev - 1), NoteHistory.load(noteDao, id, revision.rev));
+            stored += revision.size;
+        }
+        // Полные копии заняли бы revisions.size() * BODY_CHARS; снимки сжаты, остальное — дельты
+        assertTrue("история " + stored + " байт", stored < (long) BODY_CHARS * revisions.size() / 8);
+    }
+
+    @Test
+    public void editOutsideHistoryStartsFromSnapshot() {
+        Note note = new Note();
+        note.title = "Заметка";
+        note.content = "первая версия";
+        long id = noteDao.insertNote(note);
+        save(id, "вторая версия");
+
+        // Текст заменён в обход истории (импорт, синхронизация)
+        noteDao.updateContent(id, "изменено снаружи");
+        save(id, "третья версия");
+
+        List<NoteRevisionInfo> revisions = noteDao.getRevisionInfos(id);
+        assertEquals(4, revisions.size());
+        assertEquals("изменено снаружи", NoteHistory.load(noteDao, id, 3));
+        assertEquals("третья версия", NoteHistory.load(noteDao, id, 4));
+        assertEquals("первая версия", NoteHistory.load(noteDao, id, 1));
+    }
+
+    @Test
+    public void titleOnlySaveKeepsText() {
+        Random random = new Random(29);
+        Note note = new Note();
+        note.title = "Старый заголовок";
+        note.content = NoteFixtures.text(random, BODY_CHARS);
+        long id = noteDao.insertNote(note);
+        save(id, note.content + "\nконец");
+
+        noteDao.applyEdit(id, "Новый заголовок", null, null, System.currentTimeMillis());
+
+        List<NoteRevisionInfo> revisions = noteDao.getRevisionInfos(id);
+        assertEquals(3, revisions.size());
+        NoteRevisionInfo titleOnly = revisions.get(0);
+        assertEquals("Новый заголовок", titleOnly.title);
+        assertFalse(titleOnly.snapshot);
+        assertEquals(revisions.get(1).contentHash, titleOnly.contentHash);
+        assertTrue("версия " + titleOnly.size + " байт", titleOnly.size < 16);
+        assertEquals(note.content + "\nконец", NoteHistory.load(noteDao, id, titleOnly.rev));
+
+        // Следующая правка текста строит дельту уже от версии с новым заголовком
+        save(id, "короткий текст");
+        assertEquals("короткий текст", NoteHistory.load(noteDao, id, titleOnly.rev + 1));
+        assertEquals("Новый заголовок", noteDao.getRevisionInfos(id).get(0).title);
+    }
+
+    private void save(long id, String content) {
+        noteDao.applyEdit(id, null, content, null, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.notes.data.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.notes.data.db.AppDatabase;
+import com.example.notes.data.db.Note;
+import com.example.notes.data.db.NoteDao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Архив заметок переносится импортом, а файл изменений импорт отвергает целиком.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class NoteArchiveTest {
+
+    private AppDatabase db;
+    private NoteDao noteDao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        db = AppDatabase.inMemory(context);
+        noteDao = db.noteDao();
+        noteDao.insertNote(note("Первая", "текст первой"));
+        noteDao.insertNote(note("Вторая", "текст второй"));
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void exportedNotesImportBack() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NoteArchive.exportTo(noteDao, out, processed -> { });
+
+        List<Note> imported = new ArrayList<>();
+        int count = NoteArchive.importFrom(new ByteArrayInputStream(out.toByteArray()),
+                imported::addAll, processed -> { });
+
+        assertEquals(2, count);
+        assertEquals("Первая", imported.get(0).title);
+        assertEquals("текст второй", imported.get(1).content);
+    }
+
+    @Test
+    public void changeFileIsRejectedWithoutInserting() throws IOException {
+        List<Note> notes = noteDao.getAll();
+        noteDao.updateTitle(notes.get(0).id, "Изменена");
+        noteDao.softDelete(List.of(notes.get(1).id), System.currentTimeMillis());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NoteArchive.exportChangesTo(noteDao, out, 0, processed -> { });
+        assertTrue(out.toString("UTF-8").contains("\"deleted\":true"));
+
+        List<Note> imported = new ArrayList<>();
+        try {
+            NoteArchive.importFrom(new ByteArrayInputStream(out.toByteArray()), imported::addAll,
+                    processed -> { });
+            fail("файл изменений импортирован как заметки");
+        } catch (IOException expected) {
+            // ни пустых заметок из удалений, ни дублей изменённых
+        }
+        assertTrue(imported.isEmpty());
+    }
+
+    private static Note note(String title, String content) {
+        Note note = new Note();
+        note.title = title;
+        note.content = content;
+        return note;
+    }
+}
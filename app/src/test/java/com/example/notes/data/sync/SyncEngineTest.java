@@ -0,0 +1,309 @@
+package com.example.notes.data.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.notes.benchmark.NoteFixtures;
+import com.example.notes.data.db.AppDatabase;
+import com.example.notes.data.db.Note;
+import com.example.notes.data.db.NoteChunks;
+import com.example.notes.data.db.NoteDao;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Синхронизация двух устройств (две in-memory базы) через локальный HTTP-сервер,
+ * который хранит последнюю запись на заметку и разрешает конфликты тем же SyncRecord.winsOver.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SyncEngineTest {
+
+    private static final int NOTES = 300;
+    private static final long SEED = 22;
+
+    // Несколько коротких правок должны уходить в единицы килобайт, а не во всю базу
+    private static final long SMALL_DELTA_BYTES = 4 * 1024;
+
+    // Одна правка поля длинной заметки — служебные поля записи и запрос pull, без тела
+    private static final long SMALL_FIELD_BYTES = 1024;
+
+    private MockServer server;
+    private AppDatabase dbA;
+    private AppDatabase dbB;
+    private SyncEngine engineA;
+    private SyncEngine engineB;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockServer();
+        Context context = ApplicationProvider.getApplicationContext();
+        dbA = AppDatabase.inMemory(context);
+        dbB = AppDatabase.inMemory(context);
+        engineA = new SyncEngine(dbA, server.transport(), prefs(context, "sync-a"), null, 1);
+        engineB = new SyncEngine(dbB, server.transport(), prefs(context, "sync-b"), null, 1);
+    }
+
+    @After
+    public void tearDown() {
+        dbA.close();
+        dbB.close();
+        server.stop();
+    }
+
+    @Test
+    public void devicesConvergeAndSendOnlyChanges() throws IOException {
+        NoteFixtures.seed(dbA, NOTES, SEED);
+
+        SyncEngine.Result first = engineA.sync();
+        assertEquals(NOTES, first.pushed);
+        SyncEngine.Result initial = engineB.sync();
+        assertEquals(NOTES, initial.applied);
+        assertEquals(snapshot(dbA), snapshot(dbB));
+
+        // Повторный обмен без правок ничего не отправляет
+        assertEquals(0, engineB.sync().pushed);
+
+        List<Note> notes = dbA.noteDao().getAll();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            Note note = notes.get(i);
+            dbA.noteDao().updateTitle(note.id, "Правка " + i);
+            dbA.noteDao().updateContent(note.id, "Короткий новый текст " + i);
+            dbA.noteDao().touch(note.id, now + i);
+        }
+        dbA.noteDao().softDelete(List.of(notes.get(3).id), now);
+
+        SyncEngine.Result delta = engineA.sync();
+        assertEquals(4, delta.pushed);
+        assertTrue("отправлено " + delta.bytesSent + " байт", delta.bytesSent < SMALL_DELTA_BYTES);
+
+        SyncEngine.Result received = engineB.sync();
+        assertEquals(4, received.applied);
+        assertTrue("получено " + received.bytesReceived + " байт", received.bytesReceived < SMALL_DELTA_BYTES);
+        assertEquals(snapshot(dbA), snapshot(dbB));
+    }
+
+    @Test
+    public void longNoteSendsOnlyChangedFields() throws IOException {
+        Note note = new Note();
+        note.title = "Длинная заметка";
+        note.content = NoteFixtures.text(new Random(SEED), 3 * NoteChunks.CHUNK_SIZE);
+        long id = dbA.noteDao().insertNote(note);
+        engineA.sync();
+        engineB.sync();
+
+        // Смена флага не тащит за собой тело
+        dbA.noteDao().updateImportant(id, true);
+        dbA.noteDao().touch(id, System.currentTimeMillis());
+        SyncEngine.Result toggled = engineA.sync();
+        assertEquals(1, toggled.pushed);
+        assertTrue("отправлено " + toggled.bytesSent + " байт", toggled.bytesSent < SMALL_FIELD_BYTES);
+
+        // Правка текста из редактора уходит дельтой от версии, известной серверу (она есть в истории)
+        dbA.noteDao().applyEdit(id, null, note.content + "\nДописано в конце", null, System.currentTimeMillis());
+        SyncEngine.Result edited = engineA.sync();
+        assertEquals(1, edited.pushed);
+        assertTrue("отправлено " + edited.bytesSent + " байт", edited.bytesSent < SMALL_FIELD_BYTES);
+
+        engineB.sync();
+        assertEquals(snapshot(dbA), snapshot(dbB));
+    }
+
+    @Test
+    public void concurrentEditsResolveToLatest() throws IOException {
+        NoteFixtures.seed(dbA, 20, SEED);
+        engineA.sync();
+        engineB.sync();
+
+        Note onA = dbA.noteDao().getAll().get(0);
+        Note onB = dbB.noteDao().getBySyncIds(List.of(onA.syncId)).get(0);
+        long now = System.currentTimeMillis();
+        dbA.noteDao().updateTitle(onA.id, "С устройства A");
+        dbA.noteDao().touch(onA.id, now);
+        dbB.noteDao().updateTitle(onB.id, "С устройства B");
+        dbB.noteDao().touch(onB.id, now + 1000);
+
+        // A отправляет первым, но правка B позже — побеждает она, в каком бы порядке ни шёл обмен
+        engineA.sync();
+        engineB.sync();
+        engineA.sync();
+
+        assertEquals("С устройства B", dbA.noteDao().getById(onA.id).title);
+        assertEquals("С устройства B", dbB.noteDao().getById(onB.id).title);
+        assertEquals(snapshot(dbA), snapshot(dbB));
+    }
+
+    @Test
+    public void transientFailuresAreRetried() throws IOException {
+        NoteFixtures.seed(dbA, 10, SEED);
+        AtomicInteger failures = new AtomicInteger(2);
+        SyncTransport real = server.transport();
+        SyncTransport flaky = (endpoint, body) -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new SyncTransport.RetryableException("HTTP 503 от " + endpoint);
+            }
+            return real.post(endpoint, body);
+        };
+        Context context = ApplicationProvider.getApplicationContext();
+        SyncEngine engine = new SyncEngine(dbA, flaky, prefs(context, "sync-flaky"), null, 1);
+
+        assertEquals(10, engine.sync().pushed);
+        engineB.sync();
+        assertEquals(snapshot(dbA), snapshot(dbB));
+    }
+
+    @Test
+    public void rejectedRecordsArePushedAgain() throws IOException {
+        NoteFixtures.seed(dbA, 10, SEED);
+        AtomicBoolean rejecting = new AtomicBoolean(true);
+        SyncTransport real = server.transport();
+        // Сервер не принимает ни частичную, ни полную запись — отвечает resend на каждую
+        SyncTransport transport = (endpoint, body) -> {
+            if (!rejecting.get() || !SyncEngine.ENDPOINT_PUSH.equals(endpoint)) {
+                return real.post(endpoint, body);
+            }
+            List<String> resend = new ArrayList<>();
+            for (SyncRecord record : SyncCodec.decodePush(body)) {
+                resend.add(record.syncId);
+            }
+            return SyncCodec.encodePushResponse(0, resend);
+        };
+        Context context = ApplicationProvider.getApplicationContext();
+        SyncEngine engine = new SyncEngine(dbA, transport, prefs(context, "sync-rejected"), null, 1);
+
+        assertEquals(0, engine.sync().pushed);
+
+        // Непринятые заметки не помечены отправленными, а seq журнала не ушёл за их правки
+        rejecting.set(false);
+        assertEquals(10, engine.sync().pushed);
+        engineB.sync();
+        assertEquals(snapshot(dbA), snapshot(dbB));
+    }
+
+    // === Вспомогательное ===
+
+    private static SharedPreferences prefs(Context context, String name) {
+        SharedPreferences prefs = context.getSharedPreferences(name, Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+        return prefs;
+    }
+
+    // Содержимое заметок по sync_id: заголовок, полный текст, важность, удалена ли
+    private static Map<String, String> snapshot(AppDatabase db) {
+        NoteDao noteDao = db.noteDao();
+        Map<String, String> state = new TreeMap<>();
+        for (Note note : noteDao.getAll()) {
+            state.put(note.syncId, note.title + "|" + note.important + "|" + noteDao.loadFullContent(note));
+        }
+        return state;
+    }
+
+    /**
+     * Сервер синхронизации в памяти: последняя полная запись на sync_id с номером изменения seq.
+     * Частичные записи дополняет своей (SyncRecord.mergedOnto), а те, что дополнить нельзя,
+     * просит прислать заново.
+     */
+    private static final class MockServer {
+
+        private final HttpServer http;
+        private final Map<String, SyncRecord> records = new HashMap<>();
+        private final TreeMap<Long, SyncRecord> log = new TreeMap<>();
+        private long seq;
+
+        MockServer() throws IOException {
+            http = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            http.createContext("/" + SyncEngine.ENDPOINT_PUSH, exchange -> respond(exchange, this::push));
+            http.createContext("/" + SyncEngine.ENDPOINT_PULL, exchange -> respond(exchange, this::pull));
+            http.start();
+        }
+
+        SyncTransport transport() throws IOException {
+            return new HttpSyncTransport("http://127.0.0.1:" + http.getAddress().getPort() + "/");
+        }
+
+        void stop() {
+            http.stop(0);
+        }
+
+        private synchronized byte[] push(byte[] body) throws IOException {
+            List<SyncRecord> changes = SyncCodec.decodePush(body);
+            List<String> resend = new ArrayList<>();
+            for (SyncRecord record : changes) {
+                SyncRecord current = records.get(record.syncId);
+                if (current != null && !record.winsOver(current)) continue;
+                SyncRecord merged = record.mergedOnto(current);
+                if (merged == null) {
+                    resend.add(record.syncId);
+                    continue;
+                }
+                if (current != null) log.remove(current.seq);
+                merged.seq = ++seq;
+                records.put(merged.syncId, merged);
+                log.put(merged.seq, merged);
+            }
+            return SyncCodec.encodePushResponse(changes.size(), resend);
+        }
+
+        private synchronized byte[] pull(byte[] body) throws IOException {
+            SyncCodec.PullRequest request = SyncCodec.decodePullRequest(body);
+            SyncCodec.PullResponse response = new SyncCodec.PullResponse();
+            response.cursor = request.since;
+            for (SyncRecord record : log.tailMap(request.since, false).values()) {
+                if (response.changes.size() == request.limit) {
+                    response.more = true;
+                    break;
+                }
+                response.changes.add(record);
+                response.cursor = record.seq;
+            }
+            return SyncCodec.encodePullResponse(response);
+        }
+
+        private interface Handler {
+            byte[] handle(byte[] body) throws IOException;
+        }
+
+        private static void respond(HttpExchange exchange, Handler handler) throws IOException {
+            byte[] response;
+            try (InputStream in = exchange.getRequestBody()) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    body.write(buffer, 0, n);
+                }
+                response = handler.handle(body.toByteArray());
+            }
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        }
+    }
+}